@@ -0,0 +1,54 @@
+package org.rt.rtkj.dicom;
+
+import org.dcm4che3.data.Attributes;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of the pixel data and header attributes of a single dataset.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReaderBenchmark {
+    @Param({"COPY", "VIEW"})
+    public PixelDataMode mode;
+
+    private Attributes ct;
+    private Attributes pt;
+    private Attributes rtDose;
+
+    @Setup
+    public void setup() {
+        ct = SyntheticDatasets.ct(512, 512, 0.0, "1.2.826.0.1.3680043.2.1125.4");
+        pt = SyntheticDatasets.pt(256, 256, 0.0, "1.2.826.0.1.3680043.2.1125.5");
+        rtDose = SyntheticDatasets.rtDose(128, 128, 100);
+    }
+
+    @Benchmark
+    public CT ct() throws IOException, DicomException {
+        return Reader.ct(null, ct, ByteOrder.LITTLE_ENDIAN, mode).orElseThrow();
+    }
+
+    @Benchmark
+    public float[] ctRescaled() throws IOException, DicomException {
+        CT image = Reader.ct(null, ct, ByteOrder.LITTLE_ENDIAN, mode).orElseThrow();
+        return PixelDecoder.rescale(image.getPixelBuffer(), image.getRescaleSlope(), image.getRescaleIntercept());
+    }
+
+    @Benchmark
+    public PT pt() throws IOException, DicomException {
+        return Reader.pt(null, pt, ByteOrder.LITTLE_ENDIAN, mode).orElseThrow();
+    }
+
+    @Benchmark
+    public RTDose rtDose() throws IOException, DicomException {
+        return Reader.rtDose(null, rtDose, ByteOrder.LITTLE_ENDIAN, mode).orElseThrow();
+    }
+}
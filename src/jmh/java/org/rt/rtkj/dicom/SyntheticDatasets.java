@@ -0,0 +1,90 @@
+package org.rt.rtkj.dicom;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.UID;
+import org.dcm4che3.data.VR;
+
+import java.util.Random;
+
+/**
+ * Generates CT, PT and RTDose datasets in memory so the benchmarks don't depend on files on disk.
+ */
+public class SyntheticDatasets {
+    private static final int[] DATE_TAGS = {
+            Tag.InstanceCreationDate, Tag.StudyDate, Tag.SeriesDate, Tag.AcquisitionDate, Tag.ContentDate,
+            Tag.PatientBirthDate, Tag.DateOfLastCalibration, Tag.ScheduledProcedureStepStartDate,
+            Tag.ScheduledProcedureStepEndDate, Tag.PerformedProcedureStepStartDate
+    };
+
+    private static Attributes common(String sopClassUID, String sopInstanceUID, String modality, int columns, int rows,
+                                     double z, int bitsAllocated) {
+        Attributes attr = new Attributes();
+        for (int tag : DATE_TAGS) {
+            attr.setString(tag, VR.DA, "20200101");
+        }
+        attr.setString(Tag.StudyTime, VR.TM, "120000");
+        attr.setString(Tag.SOPClassUID, VR.UI, sopClassUID);
+        attr.setString(Tag.SOPInstanceUID, VR.UI, sopInstanceUID);
+        attr.setString(Tag.Modality, VR.CS, modality);
+        attr.setString(Tag.PatientID, VR.LO, "BENCHMARK");
+        attr.setString(Tag.PatientPosition, VR.CS, "HFS");
+        attr.setString(Tag.StudyInstanceUID, VR.UI, "1.2.826.0.1.3680043.2.1125.1");
+        attr.setString(Tag.SeriesInstanceUID, VR.UI, "1.2.826.0.1.3680043.2.1125.1." + modality.length());
+        attr.setString(Tag.FrameOfReferenceUID, VR.UI, "1.2.826.0.1.3680043.2.1125.2");
+        attr.setDouble(Tag.ImagePositionPatient, VR.DS, -250.0, -250.0, z);
+        attr.setDouble(Tag.ImageOrientationPatient, VR.DS, 1, 0, 0, 0, 1, 0);
+        attr.setDouble(Tag.PixelSpacing, VR.DS, 500.0 / rows, 500.0 / columns);
+        attr.setInt(Tag.SamplesPerPixel, VR.US, 1);
+        attr.setString(Tag.PhotometricInterpretation, VR.CS, "MONOCHROME2");
+        attr.setInt(Tag.Rows, VR.US, rows);
+        attr.setInt(Tag.Columns, VR.US, columns);
+        attr.setInt(Tag.BitsAllocated, VR.US, bitsAllocated);
+        attr.setInt(Tag.BitsStored, VR.US, bitsAllocated);
+        attr.setInt(Tag.HighBit, VR.US, bitsAllocated - 1);
+        return attr;
+    }
+
+    /**
+     * Little endian pixel data with random values.
+     */
+    public static byte[] pixelData(int n, int bitsAllocated, long seed) {
+        byte[] bytes = new byte[n * bitsAllocated / 8];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    public static Attributes ct(int columns, int rows, double z, String sopInstanceUID) {
+        Attributes attr = common(UID.CTImageStorage, sopInstanceUID, "CT", columns, rows, z, 16);
+        attr.setInt(Tag.PixelRepresentation, VR.US, 1);
+        attr.setDouble(Tag.RescaleIntercept, VR.DS, -1024.0);
+        attr.setDouble(Tag.RescaleSlope, VR.DS, 1.0);
+        attr.setBytes(Tag.PixelData, VR.OW, pixelData(columns * rows, 16, sopInstanceUID.hashCode()));
+        return attr;
+    }
+
+    public static Attributes pt(int columns, int rows, double z, String sopInstanceUID) {
+        Attributes attr = common(UID.PositronEmissionTomographyImageStorage, sopInstanceUID, "PT", columns, rows, z, 16);
+        attr.setInt(Tag.PixelRepresentation, VR.US, 0);
+        attr.setDouble(Tag.RescaleIntercept, VR.DS, 0.0);
+        attr.setDouble(Tag.RescaleSlope, VR.DS, 0.25);
+        attr.setBytes(Tag.PixelData, VR.OW, pixelData(columns * rows, 16, sopInstanceUID.hashCode()));
+        return attr;
+    }
+
+    public static Attributes rtDose(int columns, int rows, int frames) {
+        Attributes attr = common(UID.RTDoseStorage, "1.2.826.0.1.3680043.2.1125.3", "RTDOSE", columns, rows, 0.0, 32);
+        attr.setInt(Tag.PixelRepresentation, VR.US, 0);
+        attr.setInt(Tag.NumberOfFrames, VR.IS, frames);
+        attr.setInt(Tag.FrameIncrementPointer, VR.AT, Tag.GridFrameOffsetVector);
+        double[] offsets = new double[frames];
+        for (int i = 0; i < frames; i++) offsets[i] = 2.5 * i;
+        attr.setDouble(Tag.GridFrameOffsetVector, VR.DS, offsets);
+        attr.setDouble(Tag.DoseGridScaling, VR.DS, 1e-6);
+        attr.setString(Tag.DoseUnits, VR.CS, "GY");
+        attr.setString(Tag.DoseType, VR.CS, "PHYSICAL");
+        attr.setString(Tag.DoseSummationType, VR.CS, "PLAN");
+        attr.setBytes(Tag.PixelData, VR.OW, pixelData(columns * rows * frames, 32, frames));
+        return attr;
+    }
+}
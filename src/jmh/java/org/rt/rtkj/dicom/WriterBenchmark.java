@@ -0,0 +1,31 @@
+package org.rt.rtkj.dicom;
+
+import org.dcm4che3.data.Attributes;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding of an RTDose into a DICOM dataset.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriterBenchmark {
+    private RTDose dose;
+
+    @Setup
+    public void setup() throws IOException, DicomException {
+        dose = Reader.rtDose(null, SyntheticDatasets.rtDose(128, 128, 100), ByteOrder.LITTLE_ENDIAN).orElseThrow();
+    }
+
+    @Benchmark
+    public Attributes rtdose() {
+        return Writer.rtdose(dose).orElseThrow();
+    }
+}
@@ -0,0 +1,63 @@
+package org.rt.rtkj.model;
+
+import org.dcm4che3.data.Attributes;
+import org.openjdk.jmh.annotations.*;
+import org.rt.rtkj.dicom.CT;
+import org.rt.rtkj.dicom.DicomException;
+import org.rt.rtkj.dicom.PT;
+import org.rt.rtkj.dicom.Reader;
+import org.rt.rtkj.dicom.SyntheticDatasets;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversion of decoded datasets into images and volumes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageFactoryBenchmark {
+    private static final int SLICES = 64;
+
+    private CT ct;
+    private PT pt;
+    private Image3D image3D;
+
+    @Setup
+    public void setup() throws IOException, DicomException {
+        ct = Reader.ct(null, SyntheticDatasets.ct(512, 512, 0.0, "1.2.826.0.1.3680043.2.1125.6"),
+                ByteOrder.LITTLE_ENDIAN).orElseThrow();
+        pt = Reader.pt(null, SyntheticDatasets.pt(256, 256, 0.0, "1.2.826.0.1.3680043.2.1125.7"),
+                ByteOrder.LITTLE_ENDIAN).orElseThrow();
+        image3D = new Image3D();
+        for (int i = 0; i < SLICES; i++) {
+            Attributes attr = SyntheticDatasets.ct(512, 512, 2.0 * i, "1.2.826.0.1.3680043.2.1125.8." + i);
+            image3D.add(ImageFactory.build(Reader.ct(null, attr, ByteOrder.LITTLE_ENDIAN).orElseThrow()).orElseThrow());
+        }
+    }
+
+    @Benchmark
+    public Image2D buildCT() {
+        return ImageFactory.build(ct).orElseThrow();
+    }
+
+    @Benchmark
+    public Image2D buildCTRescaled() {
+        return ImageFactory.build(ct, true).orElseThrow();
+    }
+
+    @Benchmark
+    public Image2D buildPT() {
+        return ImageFactory.build(pt).orElseThrow();
+    }
+
+    @Benchmark
+    public Volume3D buildVolume() {
+        return ImageFactory.build(image3D).orElseThrow();
+    }
+}
@@ -0,0 +1,100 @@
+package org.rt.rtkj.model;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sequential and random voxel access on the slice based Image3D and the dense Volume3D.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VoxelAccessBenchmark {
+    private static final int COLUMNS = 256;
+    private static final int ROWS = 256;
+    private static final int SLICES = 32;
+    private static final int RANDOM_READS = 1 << 16;
+
+    @Param({"HEAP", "OFF_HEAP"})
+    public VolumeStorage storage;
+
+    private Image3D image3D;
+    private Volume3D volume;
+    private int[] randomIndices;
+
+    @Setup
+    public void setup() {
+        image3D = new Image3D();
+        Random random = new Random(42);
+        for (int k = 0; k < SLICES; k++) {
+            Image2D image = new Image2D(COLUMNS, ROWS);
+            image.setSOPInstanceUID("1.2.826.0.1.3680043.2.1125.9." + k);
+            image.setPixelSpacing(new double[]{1.0, 1.0});
+            image.setImageOrientationPatient(new double[]{1, 0, 0, 0, 1, 0});
+            image.setImagePositionPatient(new double[]{0, 0, 2.0 * k});
+            image.setRescaleSlope(1.0);
+            for (int r = 0; r < ROWS; r++) {
+                for (int c = 0; c < COLUMNS; c++) {
+                    image.setUnchecked(c, r, random.nextInt(4096));
+                }
+            }
+            image3D.add(image);
+        }
+        image3D.sort();
+        volume = ImageFactory.build(image3D, storage).orElseThrow();
+        randomIndices = new int[3 * RANDOM_READS];
+        for (int i = 0; i < RANDOM_READS; i++) {
+            randomIndices[3 * i] = random.nextInt(COLUMNS);
+            randomIndices[3 * i + 1] = random.nextInt(ROWS);
+            randomIndices[3 * i + 2] = random.nextInt(SLICES);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        volume.close();
+    }
+
+    @Benchmark
+    public double image3DSequential() {
+        double sum = 0;
+        for (int k = 0; k < SLICES; k++) {
+            for (int r = 0; r < ROWS; r++) {
+                for (int c = 0; c < COLUMNS; c++) {
+                    sum += image3D.getScaledValue(c, r, k).orElse(0.0);
+                }
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double volumeSequential() {
+        double sum = 0;
+        long n = volume.size();
+        for (long i = 0; i < n; i++) {
+            sum += volume.get(i);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public void image3DRandom(Blackhole bh) {
+        for (int i = 0; i < randomIndices.length; i += 3) {
+            bh.consume(image3D.getScaledValue(randomIndices[i], randomIndices[i + 1], randomIndices[i + 2]));
+        }
+    }
+
+    @Benchmark
+    public void volumeRandom(Blackhole bh) {
+        for (int i = 0; i < randomIndices.length; i += 3) {
+            bh.consume(volume.get(randomIndices[i], randomIndices[i + 1], randomIndices[i + 2]));
+        }
+    }
+}
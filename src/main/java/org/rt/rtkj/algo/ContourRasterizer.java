@@ -0,0 +1,379 @@
+package org.rt.rtkj.algo;
+
+import lombok.extern.log4j.Log4j2;
+import org.rt.rtkj.dicom.CT3d;
+import org.rt.rtkj.dicom.ContourItem;
+import org.rt.rtkj.dicom.ROIContourItem;
+import org.rt.rtkj.dicom.RTStructureSet;
+import org.rt.rtkj.model.MaskStorage;
+import org.rt.rtkj.model.RoiMask;
+import org.rt.rtkj.model.StructureSetMasks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Rasterizes the CLOSED_PLANAR contours of a ROI onto a grid with an even-odd scanline fill.
+ * <p>
+ * Each frame of the grid uses the contour plane nearest to it, as long as the frame lies within half the contour
+ * slice spacing or half the frame thickness of that plane, whichever is larger. The contour slice spacing is the
+ * smallest distance between consecutive planes of a ROI with at least three planes, so a ROI with separate parts
+ * along the normal isn't extruded through the gap between them. All contours in a plane are filled together with the even-odd rule, so contours
+ * inside other contours are treated as holes. A voxel is inside if its center is inside, or, for partial-volume
+ * weights, the voxel is sub-sampled on a regular n x n grid and weighted by the fraction of samples inside.
+ * <p>
+ * Frames are independent, the mask and weight methods process them in parallel.
+ */
+@Log4j2
+public class ContourRasterizer {
+
+    public static final String CLOSED_PLANAR = "CLOSED_PLANAR";
+
+    /**
+     * Tolerance [mm] used to group contours into planes.
+     */
+    public static final double PLANE_TOLERANCE = 1e-3;
+
+    /**
+     * Receives the inside voxels of a grid row as a range of columns.
+     */
+    @FunctionalInterface
+    public interface SpanConsumer {
+        void accept(int frame, int row, int firstColumn, int lastColumn);
+    }
+
+    /**
+     * Contour projected onto the grid: continuous column and row indices and the offset along the normal.
+     */
+    static class Polygon {
+        double[] x;
+        double[] y;
+        double offset;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Contours sharing the same offset along the normal.
+     */
+    static class Plane {
+        final double offset;
+        final List<Polygon> polygons = new ArrayList<>();
+
+        Plane(double offset) {
+            this.offset = offset;
+        }
+
+        int edges() {
+            int edges = 0;
+            for (Polygon polygon : polygons) edges += polygon.x.length;
+            return edges;
+        }
+
+        double minY() {
+            double minY = Double.POSITIVE_INFINITY;
+            for (Polygon polygon : polygons) minY = Math.min(minY, polygon.minY);
+            return minY;
+        }
+
+        double maxY() {
+            double maxY = Double.NEGATIVE_INFINITY;
+            for (Polygon polygon : polygons) maxY = Math.max(maxY, polygon.maxY);
+            return maxY;
+        }
+    }
+
+    /**
+     * Rasterize a ROI onto a grid.
+     *
+     * @param roi      ROI contours
+     * @param grid     target grid
+     * @param consumer receives the inside voxels per frame and row, in order of increasing frame and row
+     */
+    public static void rasterize(ROIContourItem roi, GridGeometry grid, SpanConsumer consumer) {
+        List<Plane> planes = planes(roi, grid);
+        if (planes.isEmpty()) return;
+        for (int k = 0; k < grid.getFrames(); k++) {
+            Plane plane = nearest(planes, grid, k);
+            if (plane != null) fill(plane, grid, k, consumer);
+        }
+    }
+
+    /**
+     * Rasterize a ROI onto a grid.
+     *
+     * @param roi  ROI contours
+     * @param grid target grid
+     * @return Mask with the grid's voxel order, true for voxels inside the ROI
+     */
+    public static boolean[] mask(ROIContourItem roi, GridGeometry grid) {
+        boolean[] mask = new boolean[grid.size()];
+        int sliceSize = grid.getColumns() * grid.getRows();
+        boolean[][] slices = masks(roi, grid);
+        IntStream.range(0, slices.length).parallel().forEach(k -> {
+            if (slices[k] != null) System.arraycopy(slices[k], 0, mask, k * sliceSize, sliceSize);
+        });
+        return mask;
+    }
+
+    /**
+     * Rasterize a ROI onto a grid into a compact mask.
+     *
+     * @param roi     ROI contours
+     * @param grid    target grid
+     * @param storage mask representation
+     * @return Mask with the grid's columns, rows and frames
+     */
+    public static RoiMask mask(ROIContourItem roi, GridGeometry grid, MaskStorage storage) {
+        RoiMask.Builder builder = RoiMask.builder(grid.getColumns(), grid.getRows(), grid.getFrames(), storage);
+        rasterize(roi, grid, builder::add);
+        return builder.build();
+    }
+
+    /**
+     * Rasterize all ROIs of a structure set onto a grid. The ROIs are processed in parallel.
+     *
+     * @param structureSet structure set
+     * @param grid         target grid
+     * @param storage      mask representation
+     * @return Masks keyed by ROI number in the order of the ROI contour sequence
+     */
+    public static StructureSetMasks masks(RTStructureSet structureSet, GridGeometry grid, MaskStorage storage) {
+        StructureSetMasks masks = new StructureSetMasks(structureSet, grid.getColumns(), grid.getRows(),
+                grid.getFrames());
+        if (structureSet == null || structureSet.getRoiContourSequence() == null) return masks;
+        List<ROIContourItem> rois = structureSet.getRoiContourSequence();
+        List<RoiMask> list = rois.parallelStream()
+                .map(roi -> mask(roi, grid, storage))
+                .collect(Collectors.toList());
+        for (int i = 0; i < rois.size(); i++) masks.put(rois.get(i).getReferencedROINumber(), list.get(i));
+        return masks;
+    }
+
+    /**
+     * Rasterize a ROI onto a grid, one mask per frame.
+     *
+     * @param roi  ROI contours
+     * @param grid target grid
+     * @return Row-major mask per frame, null for frames without contours
+     */
+    public static boolean[][] masks(ROIContourItem roi, GridGeometry grid) {
+        List<Plane> planes = planes(roi, grid);
+        boolean[][] masks = new boolean[grid.getFrames()][];
+        if (planes.isEmpty()) return masks;
+        int columns = grid.getColumns();
+        IntStream.range(0, grid.getFrames()).parallel().forEach(k -> {
+            Plane plane = nearest(planes, grid, k);
+            if (plane == null) return;
+            boolean[] mask = new boolean[columns * grid.getRows()];
+            fill(plane, grid, k, (frame, row, first, last) ->
+                    Arrays.fill(mask, row * columns + first, row * columns + last + 1, true));
+            masks[k] = mask;
+        });
+        return masks;
+    }
+
+    /**
+     * Rasterize a ROI onto the slices of a CT series.
+     *
+     * @param roi ROI contours
+     * @param ct  CT series
+     * @return Row-major mask per slice in order of the slice position along the normal, null for slices without
+     * contours
+     */
+    public static Optional<boolean[][]> masks(ROIContourItem roi, CT3d ct) {
+        return GridGeometry.of(ct).map(grid -> masks(roi, grid));
+    }
+
+    /**
+     * Partial-volume weights of a ROI on a grid, one array per frame. Every voxel is sampled on a regular
+     * subsamples x subsamples grid within the voxel and the weight is the fraction of samples inside the ROI.
+     *
+     * @param roi        ROI contours
+     * @param grid       target grid
+     * @param subsamples number of samples per voxel along the rows and columns
+     * @return Row-major weights in [0, 1] per frame, null for frames without contours
+     */
+    public static float[][] weights(ROIContourItem roi, GridGeometry grid, int subsamples) {
+        if (subsamples < 1) throw new IllegalArgumentException("Number of subsamples must be positive");
+        List<Plane> planes = planes(roi, grid);
+        float[][] weights = new float[grid.getFrames()][];
+        if (planes.isEmpty()) return weights;
+        IntStream.range(0, grid.getFrames()).parallel().forEach(k -> {
+            Plane plane = nearest(planes, grid, k);
+            if (plane != null) weights[k] = weights(plane, grid, subsamples);
+        });
+        return weights;
+    }
+
+    /**
+     * Partial-volume weights of a ROI on the slices of a CT series.
+     *
+     * @param roi        ROI contours
+     * @param ct         CT series
+     * @param subsamples number of samples per voxel along the rows and columns
+     * @return Row-major weights per slice in order of the slice position along the normal, null for slices without
+     * contours
+     */
+    public static Optional<float[][]> weights(ROIContourItem roi, CT3d ct, int subsamples) {
+        return GridGeometry.of(ct).map(grid -> weights(roi, grid, subsamples));
+    }
+
+    /**
+     * Project the closed planar contours of a ROI onto the grid and group them per plane.
+     */
+    static List<Plane> planes(ROIContourItem roi, GridGeometry grid) {
+        List<Polygon> polygons = new ArrayList<>();
+        if (roi == null || roi.getContourSequence() == null) return new ArrayList<>();
+        double[] ipp = grid.getImagePositionPatient();
+        double[] u = grid.getRowCosine();
+        double[] v = grid.getColumnCosine();
+        double[] n = grid.getNormal();
+        double sc = grid.getPixelSpacing()[1];
+        double sr = grid.getPixelSpacing()[0];
+        for (ContourItem contour : roi.getContourSequence()) {
+            if (!CLOSED_PLANAR.equals(contour.getContourGeometricType())) continue;
+            double[] data = contour.getContourData();
+            if (data == null || data.length < 9 || data.length % 3 != 0) {
+                log.error(String.format("Contour %d of ROI %d has invalid contour data", contour.getContourNumber(),
+                        roi.getReferencedROINumber()));
+                continue;
+            }
+            int m = data.length / 3;
+            Polygon polygon = new Polygon();
+            polygon.x = new double[m];
+            polygon.y = new double[m];
+            double offset = 0.0;
+            for (int i = 0; i < m; i++) {
+                double dx = data[3 * i] - ipp[0];
+                double dy = data[3 * i + 1] - ipp[1];
+                double dz = data[3 * i + 2] - ipp[2];
+                polygon.x[i] = (dx * u[0] + dy * u[1] + dz * u[2]) / sc;
+                polygon.y[i] = (dx * v[0] + dy * v[1] + dz * v[2]) / sr;
+                offset += dx * n[0] + dy * n[1] + dz * n[2];
+                polygon.minY = Math.min(polygon.minY, polygon.y[i]);
+                polygon.maxY = Math.max(polygon.maxY, polygon.y[i]);
+            }
+            polygon.offset = offset / m;
+            polygons.add(polygon);
+        }
+        polygons.sort(Comparator.comparingDouble(p -> p.offset));
+        List<Plane> planes = new ArrayList<>();
+        for (Polygon polygon : polygons) {
+            if (planes.isEmpty() || polygon.offset - planes.get(planes.size() - 1).offset > PLANE_TOLERANCE) {
+                planes.add(new Plane(polygon.offset));
+            }
+            planes.get(planes.size() - 1).polygons.add(polygon);
+        }
+        return planes;
+    }
+
+    /**
+     * Contour plane for a grid frame.
+     *
+     * @return Nearest plane if the frame is within half the contour slice spacing or half the frame thickness,
+     * null otherwise
+     */
+    static Plane nearest(List<Plane> planes, GridGeometry grid, int frame) {
+        double f = grid.getFrameOffsets()[frame];
+        int lo = 0;
+        int hi = planes.size() - 1;
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            if (planes.get(mid).offset <= f) lo = mid;
+            else hi = mid;
+        }
+        int j = (Math.abs(planes.get(hi).offset - f) < Math.abs(planes.get(lo).offset - f)) ? hi : lo;
+        double half = Math.max(0.5 * Math.max(spacing(planes), grid.frameThickness(frame)), PLANE_TOLERANCE);
+        return (Math.abs(planes.get(j).offset - f) <= half + PLANE_TOLERANCE) ? planes.get(j) : null;
+    }
+
+    /**
+     * Contour slice spacing of a ROI: the smallest distance between consecutive planes. With less than three planes
+     * the distance may be a gap between separate parts, 0 is returned in that case.
+     */
+    static double spacing(List<Plane> planes) {
+        if (planes.size() < 3) return 0.0;
+        double spacing = Double.POSITIVE_INFINITY;
+        for (int i = 1; i < planes.size(); i++) {
+            spacing = Math.min(spacing, planes.get(i).offset - planes.get(i - 1).offset);
+        }
+        return spacing;
+    }
+
+    /**
+     * Even-odd scanline fill of a plane at the voxel centers of a frame.
+     */
+    static void fill(Plane plane, GridGeometry grid, int frame, SpanConsumer consumer) {
+        double[] xs = new double[plane.edges()];
+        int firstRow = Math.max((int) Math.ceil(plane.minY()), 0);
+        int lastRow = Math.min((int) Math.floor(plane.maxY()), grid.getRows() - 1);
+        int lastColumn = grid.getColumns() - 1;
+        for (int r = firstRow; r <= lastRow; r++) {
+            int count = intersections(plane, r, xs);
+            for (int i = 0; i + 1 < count; i += 2) {
+                int c0 = Math.max((int) Math.ceil(xs[i]), 0);
+                int c1 = Math.min((int) Math.floor(xs[i + 1]), lastColumn);
+                if (c0 <= c1) consumer.accept(frame, r, c0, c1);
+            }
+        }
+    }
+
+    /**
+     * Sub-sampled scanline fill of a plane. Sample t of a voxel at index c lies at c - 0.5 + (t + 0.5) / n.
+     */
+    static float[] weights(Plane plane, GridGeometry grid, int n) {
+        int columns = grid.getColumns();
+        int rows = grid.getRows();
+        float[] weights = new float[columns * rows];
+        float sample = 1.0f / (n * n);
+        double[] xs = new double[plane.edges()];
+        // sub-sample indices j = c * n + t of the first and last sample inside the grid
+        int firstSubRow = Math.max((int) Math.ceil((plane.minY() + 0.5) * n - 0.5), 0);
+        int lastSubRow = Math.min((int) Math.floor((plane.maxY() + 0.5) * n - 0.5), rows * n - 1);
+        int lastSubColumn = columns * n - 1;
+        for (int j = firstSubRow; j <= lastSubRow; j++) {
+            double y = (j + 0.5) / n - 0.5;
+            int offset = (j / n) * columns;
+            int count = intersections(plane, y, xs);
+            for (int i = 0; i + 1 < count; i += 2) {
+                int t0 = Math.max((int) Math.ceil((xs[i] + 0.5) * n - 0.5), 0);
+                int t1 = Math.min((int) Math.floor((xs[i + 1] + 0.5) * n - 0.5), lastSubColumn);
+                for (int t = t0; t <= t1; t++) {
+                    weights[offset + t / n] += sample;
+                }
+            }
+        }
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] > 1.0f) weights[i] = 1.0f;
+        }
+        return weights;
+    }
+
+    /**
+     * Sorted column positions where the contours of a plane cross the scanline at row position y.
+     *
+     * @return Number of crossings stored in xs
+     */
+    static int intersections(Plane plane, double y, double[] xs) {
+        int count = 0;
+        for (Polygon polygon : plane.polygons) {
+            if (y < polygon.minY || y > polygon.maxY) continue;
+            int m = polygon.x.length;
+            for (int i = 0, j = m - 1; i < m; j = i++) {
+                double yi = polygon.y[i];
+                double yj = polygon.y[j];
+                if ((yi <= y) != (yj <= y)) {
+                    xs[count++] = polygon.x[i] + (y - yi) * (polygon.x[j] - polygon.x[i]) / (yj - yi);
+                }
+            }
+        }
+        Arrays.sort(xs, 0, count);
+        return count;
+    }
+}
@@ -0,0 +1,194 @@
+package org.rt.rtkj.algo;
+
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.math3.util.Precision;
+import org.rt.rtkj.dicom.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Helpers shared by the dose engines to compare, decode and encode RTDose grids.
+ */
+@Log4j2
+public class DoseGrids {
+    /**
+     * Tolerance [mm] used to compare grid positions and spacings.
+     */
+    public static final double GEOMETRY_TOLERANCE = 1e-3;
+
+    /**
+     * Number of voxels processed per parallel task.
+     */
+    static final int CHUNK_SIZE = 1 << 16;
+
+    /**
+     * Largest stored value of a 32 bit unsigned dose grid.
+     */
+    private static final double MAX_STORED_VALUE = 0xFFFFFFFFL;
+
+    /**
+     * Check if two dose grids have the same voxel positions.
+     *
+     * @param a first dose grid
+     * @param b second dose grid
+     * @return True if the dimensions, position, orientation, pixel spacing and frame offsets are equal.
+     */
+    public static boolean sameGeometry(RTDose a, RTDose b) {
+        if (a.getRows() != b.getRows() || a.getColumns() != b.getColumns()
+                || a.getNumberOfFrames() != b.getNumberOfFrames()) {
+            log.error("Dose grids have different dimensions");
+            return false;
+        }
+        if (!equals(a.getImagePositionPatient(), b.getImagePositionPatient())) {
+            log.error("Dose grids have a different image position (patient)");
+            return false;
+        }
+        if (!equals(a.getImageOrientationPatient(), b.getImageOrientationPatient())) {
+            log.error("Dose grids have a different image orientation (patient)");
+            return false;
+        }
+        if (!equals(a.getPixelSpacing(), b.getPixelSpacing())) {
+            log.error("Dose grids have a different pixel spacing");
+            return false;
+        }
+        if (!equals(a.getGridFrameOffsetVector(), b.getGridFrameOffsetVector())) {
+            log.error("Dose grids have a different grid frame offset vector");
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean equals(double[] a, double[] b) {
+        if (a == null || b == null || a.length != b.length) return false;
+        for (int i = 0; i < a.length; i++) {
+            if (!Precision.equals(a[i], b[i], GEOMETRY_TOLERANCE)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Number of voxels in a dose grid according to its dimensions.
+     */
+    public static int size(RTDose dose) {
+        return dose.getNumberOfFrames() * dose.getRows() * dose.getColumns();
+    }
+
+    /**
+     * Decode the dose values (stored value * dose grid scaling) of a grid.
+     *
+     * @param dose dose grid
+     * @return Dose values in x-fastest order
+     */
+    public static double[] decode(RTDose dose) {
+        var pixels = dose.getPixelBuffer();
+        double[] values = new double[pixels.size()];
+        int chunks = (values.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int from = c * CHUNK_SIZE;
+            int n = Math.min(CHUNK_SIZE, values.length - from);
+            PixelDecoder.accumulate(pixels, from, n, dose.getDoseGridScaling(), values, from);
+        });
+        return values;
+    }
+
+    /**
+     * Copy all attributes of a dose grid except the pixel data and DVHs into a new RTDose with a new SOP instance
+     * UID.
+     *
+     * @param src dose grid
+     * @return RTDose without dose values
+     */
+    public static RTDose copyHeader(RTDose src) {
+        RTDose dst = new RTDose();
+        dst.setSpecificCharacterSet(src.getSpecificCharacterSet());
+        dst.setInstanceCreationDate(LocalDate.now());
+        dst.setInstanceCreationTime(LocalTime.now());
+        dst.setSopClassUID(src.getSopClassUID());
+        dst.setSopInstanceUID(UIDGenerator.sopInstance());
+        dst.setMediaStorageSOPClassUID(src.getMediaStorageSOPClassUID());
+        dst.setMediaStorageSOPInstanceUID(dst.getSopInstanceUID());
+        dst.setTransferSyntaxUID(src.getTransferSyntaxUID());
+        dst.setStudyDate(src.getStudyDate());
+        dst.setStudyTime(src.getStudyTime());
+        dst.setAccessionNumber(src.getAccessionNumber());
+        dst.setModality(src.getModality());
+        dst.setManufacturer(src.getManufacturer());
+        dst.setReferringPhysicianName(src.getReferringPhysicianName());
+        dst.setStationName(src.getStationName());
+        dst.setSeriesDescription(src.getSeriesDescription());
+        dst.setManufacturerModelName(src.getManufacturerModelName());
+        dst.setPatientName(src.getPatientName());
+        dst.setPatientID(src.getPatientID());
+        dst.setPatientBirthDate(src.getPatientBirthDate());
+        dst.setPatientSex(src.getPatientSex());
+        dst.setSliceThicknes(src.getSliceThicknes());
+        dst.setDeviceSerialNumber(src.getDeviceSerialNumber());
+        dst.setSoftwareVersions(src.getSoftwareVersions());
+        dst.setStudyInstanceUID(src.getStudyInstanceUID());
+        dst.setSeriesInstanceUID(src.getSeriesInstanceUID());
+        dst.setStudyID(src.getStudyID());
+        dst.setSeriesNumber(src.getSeriesNumber());
+        dst.setInstanceNumber(src.getInstanceNumber());
+        dst.setImagePositionPatient(copy(src.getImagePositionPatient()));
+        dst.setImageOrientationPatient(copy(src.getImageOrientationPatient()));
+        dst.setFrameOfReferenceUID(src.getFrameOfReferenceUID());
+        dst.setPositionReferenceIndicator(src.getPositionReferenceIndicator());
+        dst.setSamplesPerPixel(src.getSamplesPerPixel());
+        dst.setPhotometricInterpretation(src.getPhotometricInterpretation());
+        dst.setNumberOfFrames(src.getNumberOfFrames());
+        dst.setFrameIncrementPointer(src.getFrameIncrementPointer());
+        dst.setRows(src.getRows());
+        dst.setColumns(src.getColumns());
+        dst.setPixelSpacing(copy(src.getPixelSpacing()));
+        dst.setBitsAllocated(src.getBitsAllocated());
+        dst.setBitsStored(src.getBitsStored());
+        dst.setHighBit(src.getHighBit());
+        dst.setPixelRepresentation(src.getPixelRepresentation());
+        dst.setDoseUnits(src.getDoseUnits());
+        dst.setDoseType(src.getDoseType());
+        dst.setDoseSummationType(src.getDoseSummationType());
+        dst.setGridFrameOffsetVector(copy(src.getGridFrameOffsetVector()));
+        dst.setDoseGridScaling(src.getDoseGridScaling());
+        dst.setTissueHeterogeneityCorrection(src.getTissueHeterogeneityCorrection());
+        dst.setDvhSequence(new ArrayList<>());
+        dst.setReferencedRTPlanSequence(new ArrayList<>(src.getReferencedRTPlanSequence()));
+        dst.setReferencedStructureSetSequence(new ArrayList<>(src.getReferencedStructureSetSequence()));
+        return dst;
+    }
+
+    private static double[] copy(double[] values) {
+        return (values == null) ? null : Arrays.copyOf(values, values.length);
+    }
+
+    /**
+     * Store dose values in a dose grid as 32 bit unsigned integers. The dose grid scaling is chosen so that the
+     * maximum dose maps onto the largest stored value. Negative doses are stored as 0.
+     *
+     * @param dose   dose grid receiving the values
+     * @param values dose values in x-fastest order
+     */
+    public static void encode(RTDose dose, double[] values) {
+        double max = Arrays.stream(values).parallel().max().orElse(0.0);
+        double scaling = (max > 0) ? max / MAX_STORED_VALUE : 1.0;
+        int[] stored = new int[values.length];
+        int chunks = (values.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int from = c * CHUNK_SIZE;
+            int to = Math.min(from + CHUNK_SIZE, values.length);
+            for (int i = from; i < to; i++) {
+                double v = values[i] / scaling;
+                stored[i] = (v <= 0) ? 0 : (int) Math.min(Math.round(v), 0xFFFFFFFFL);
+            }
+        });
+        dose.setBitsAllocated(32);
+        dose.setBitsStored(32);
+        dose.setHighBit(31);
+        dose.setPixelRepresentation(PixelRepresentation.UNSIGNED);
+        dose.setDoseGridScaling(scaling);
+        dose.setPixelBuffer(new IntPixelBuffer(stored, PixelRepresentation.UNSIGNED));
+    }
+}
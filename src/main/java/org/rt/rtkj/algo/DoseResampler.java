@@ -0,0 +1,268 @@
+package org.rt.rtkj.algo;
+
+import lombok.extern.log4j.Log4j2;
+import org.rt.rtkj.dicom.CT3d;
+import org.rt.rtkj.dicom.RTDose;
+import org.rt.rtkj.utils.Geometry;
+
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+/**
+ * Resamples a dose grid onto another grid with trilinear interpolation. Voxels of the target grid outside of the
+ * source grid receive a dose of 0.
+ */
+@Log4j2
+public class DoseResampler {
+
+    /**
+     * Interpolation positions along one axis of the source grid: the lower and upper sample index and the weight of
+     * the upper sample. The index is -1 for positions outside of the source grid.
+     */
+    private static class AxisTable {
+        final int[] i0;
+        final int[] i1;
+        final double[] w;
+
+        AxisTable(int n) {
+            i0 = new int[n];
+            i1 = new int[n];
+            w = new double[n];
+        }
+
+        boolean set(int i, int lower, int upper, double weight) {
+            i0[i] = lower;
+            i1[i] = upper;
+            w[i] = weight;
+            return lower >= 0;
+        }
+    }
+
+    /**
+     * Resample a dose grid onto the grid of a CT series, e.g. to overlay the dose on the CT.
+     *
+     * @param dose dose grid
+     * @param ct   CT series defining the target grid
+     * @return Dose on the CT grid
+     */
+    public static Optional<RTDose> resample(RTDose dose, CT3d ct) {
+        if (dose == null || ct == null) return Optional.empty();
+        var optFor = ct.getFrameOfReferenceUID();
+        if (optFor.isPresent() && dose.getFrameOfReferenceUID() != null
+                && !optFor.get().equals(dose.getFrameOfReferenceUID())) {
+            log.error("Dose grid and CT series have a different frame of reference");
+            return Optional.empty();
+        }
+        var optGeometry = GridGeometry.of(ct);
+        if (optGeometry.isEmpty()) return Optional.empty();
+        return resample(dose, optGeometry.get());
+    }
+
+    /**
+     * Resample a dose grid onto a target grid. Output frames are computed in parallel.
+     * <p>
+     * If both grids have the same orientation, the source position of every target column, row and frame is
+     * computed once in an index and weight table per axis, and the inner loop only combines the eight neighbouring
+     * source voxels. Otherwise the source position is computed per voxel into a scratch table that is reused for all
+     * voxels of a frame.
+     *
+     * @param dose   dose grid
+     * @param target target grid
+     * @return New RTDose with the geometry of the target grid
+     */
+    public static Optional<RTDose> resample(RTDose dose, GridGeometry target) {
+        if (dose == null || target == null) return Optional.empty();
+        var optSource = GridGeometry.of(dose);
+        if (optSource.isEmpty()) return Optional.empty();
+        GridGeometry source = optSource.get();
+        if (dose.getPixelBuffer().size() != source.size()) {
+            log.error("Number of dose values doesn't match the dimensions of the dose grid");
+            return Optional.empty();
+        }
+        if (!monotonic(source.getFrameOffsets())) {
+            log.error("Grid frame offsets of the dose grid must be strictly increasing or decreasing");
+            return Optional.empty();
+        }
+
+        double[] values = DoseGrids.decode(dose);
+        double[] resampled = new double[target.size()];
+        if (source.sameOrientation(target)) {
+            resampleAligned(source, values, target, resampled);
+        } else {
+            resampleGeneral(source, values, target, resampled);
+        }
+
+        RTDose result = DoseGrids.copyHeader(dose);
+        result.setColumns(target.getColumns());
+        result.setRows(target.getRows());
+        result.setNumberOfFrames(target.getFrames());
+        result.setImagePositionPatient(target.getImagePositionPatient().clone());
+        result.setImageOrientationPatient(target.getImageOrientationPatient().clone());
+        result.setPixelSpacing(target.getPixelSpacing().clone());
+        result.setGridFrameOffsetVector(target.getFrameOffsets().clone());
+        DoseGrids.encode(result, resampled);
+        return Optional.of(result);
+    }
+
+    private static void resampleAligned(GridGeometry source, double[] values, GridGeometry target, double[] dst) {
+        double[] d = new double[3];
+        for (int i = 0; i < 3; i++) d[i] = target.getImagePositionPatient()[i] - source.getImagePositionPatient()[i];
+        double du = Geometry.dot(d, source.getRowCosine());
+        double dv = Geometry.dot(d, source.getColumnCosine());
+        double dn = Geometry.dot(d, source.getNormal());
+
+        AxisTable cols = new AxisTable(target.getColumns());
+        for (int c = 0; c < target.getColumns(); c++) {
+            double x = (du + c * target.getPixelSpacing()[1]) / source.getPixelSpacing()[1];
+            uniform(x, source.getColumns(), cols, c);
+        }
+        AxisTable rows = new AxisTable(target.getRows());
+        for (int r = 0; r < target.getRows(); r++) {
+            double y = (dv + r * target.getPixelSpacing()[0]) / source.getPixelSpacing()[0];
+            uniform(y, source.getRows(), rows, r);
+        }
+        AxisTable frames = new AxisTable(target.getFrames());
+        for (int k = 0; k < target.getFrames(); k++) {
+            lookup(dn + target.getFrameOffsets()[k], source.getFrameOffsets(), frames, k);
+        }
+
+        int sc = source.getColumns();
+        int plane = sc * source.getRows();
+        int nc = target.getColumns();
+        int nr = target.getRows();
+        IntStream.range(0, target.getFrames()).parallel().forEach(k -> {
+            int offset = k * nr * nc;
+            if (frames.i0[k] < 0) return;
+            int z0 = frames.i0[k] * plane;
+            int z1 = frames.i1[k] * plane;
+            double wz = frames.w[k];
+            for (int r = 0; r < nr; r++) {
+                if (rows.i0[r] < 0) continue;
+                int b00 = z0 + rows.i0[r] * sc;
+                int b01 = z0 + rows.i1[r] * sc;
+                int b10 = z1 + rows.i0[r] * sc;
+                int b11 = z1 + rows.i1[r] * sc;
+                double wy = rows.w[r];
+                int o = offset + r * nc;
+                for (int c = 0; c < nc; c++) {
+                    int x0 = cols.i0[c];
+                    if (x0 < 0) continue;
+                    int x1 = cols.i1[c];
+                    double wx = cols.w[c];
+                    double v00 = values[b00 + x0] + wx * (values[b00 + x1] - values[b00 + x0]);
+                    double v01 = values[b01 + x0] + wx * (values[b01 + x1] - values[b01 + x0]);
+                    double v10 = values[b10 + x0] + wx * (values[b10 + x1] - values[b10 + x0]);
+                    double v11 = values[b11 + x0] + wx * (values[b11 + x1] - values[b11 + x0]);
+                    double v0 = v00 + wy * (v01 - v00);
+                    double v1 = v10 + wy * (v11 - v10);
+                    dst[o + c] = v0 + wz * (v1 - v0);
+                }
+            }
+        });
+    }
+
+    private static void resampleGeneral(GridGeometry source, double[] values, GridGeometry target, double[] dst) {
+        double[] su = source.getRowCosine();
+        double[] sv = source.getColumnCosine();
+        double[] sn = source.getNormal();
+        double[] tu = target.getRowCosine();
+        double[] tv = target.getColumnCosine();
+        double[] tn = target.getNormal();
+        double[] d = new double[3];
+        for (int i = 0; i < 3; i++) d[i] = target.getImagePositionPatient()[i] - source.getImagePositionPatient()[i];
+        // Displacement in source coordinates [mm] per step along the target axes
+        double[] stepC = {Geometry.dot(tu, su), Geometry.dot(tu, sv), Geometry.dot(tu, sn)};
+        double[] stepR = {Geometry.dot(tv, su), Geometry.dot(tv, sv), Geometry.dot(tv, sn)};
+        double[] stepF = {Geometry.dot(tn, su), Geometry.dot(tn, sv), Geometry.dot(tn, sn)};
+        double[] start = {Geometry.dot(d, su), Geometry.dot(d, sv), Geometry.dot(d, sn)};
+        double tsc = target.getPixelSpacing()[1];
+        double tsr = target.getPixelSpacing()[0];
+        double ssc = source.getPixelSpacing()[1];
+        double ssr = source.getPixelSpacing()[0];
+        int sc = source.getColumns();
+        int plane = sc * source.getRows();
+        int nc = target.getColumns();
+        int nr = target.getRows();
+        IntStream.range(0, target.getFrames()).parallel().forEach(k -> {
+            double f = target.getFrameOffsets()[k];
+            // Scratch table of the current voxel: 0 = column, 1 = row, 2 = frame
+            AxisTable p = new AxisTable(3);
+            for (int r = 0; r < nr; r++) {
+                int o = (k * nr + r) * nc;
+                for (int c = 0; c < nc; c++) {
+                    double pu = start[0] + c * tsc * stepC[0] + r * tsr * stepR[0] + f * stepF[0];
+                    double pv = start[1] + c * tsc * stepC[1] + r * tsr * stepR[1] + f * stepF[1];
+                    double pn = start[2] + c * tsc * stepC[2] + r * tsr * stepR[2] + f * stepF[2];
+                    if (!uniform(pu / ssc, sc, p, 0)) continue;
+                    if (!uniform(pv / ssr, source.getRows(), p, 1)) continue;
+                    if (!lookup(pn, source.getFrameOffsets(), p, 2)) continue;
+                    int x0 = p.i0[0], x1 = p.i1[0];
+                    int b00 = p.i0[2] * plane + p.i0[1] * sc;
+                    int b01 = p.i0[2] * plane + p.i1[1] * sc;
+                    int b10 = p.i1[2] * plane + p.i0[1] * sc;
+                    int b11 = p.i1[2] * plane + p.i1[1] * sc;
+                    double wx = p.w[0];
+                    double v00 = values[b00 + x0] + wx * (values[b00 + x1] - values[b00 + x0]);
+                    double v01 = values[b01 + x0] + wx * (values[b01 + x1] - values[b01 + x0]);
+                    double v10 = values[b10 + x0] + wx * (values[b10 + x1] - values[b10 + x0]);
+                    double v11 = values[b11 + x0] + wx * (values[b11 + x1] - values[b11 + x0]);
+                    double v0 = v00 + p.w[1] * (v01 - v00);
+                    double v1 = v10 + p.w[1] * (v11 - v10);
+                    dst[o + c] = v0 + p.w[2] * (v1 - v0);
+                }
+            }
+        });
+    }
+
+    private static final double EDGE_TOLERANCE = 1e-6;
+
+    /**
+     * Interpolation position of a continuous index on an axis with n equidistant samples, stored at index i of a
+     * table as the lower index, upper index and weight of the upper index.
+     *
+     * @return False if the position is outside of the axis, the indices are -1 in that case
+     */
+    private static boolean uniform(double x, int n, AxisTable table, int i) {
+        if (n < 1 || x < -EDGE_TOLERANCE || x > n - 1 + EDGE_TOLERANCE) return table.set(i, -1, -1, 0);
+        if (x <= 0) return table.set(i, 0, 0, 0);
+        if (x >= n - 1) return table.set(i, n - 1, n - 1, 0);
+        int i0 = (int) x;
+        return table.set(i, i0, i0 + 1, x - i0);
+    }
+
+    /**
+     * Interpolation position of a coordinate on an axis with samples at monotonic positions, stored at index i of a
+     * table as the lower index, upper index and weight of the upper index.
+     *
+     * @return False if the position is outside of the axis, the indices are -1 in that case
+     */
+    private static boolean lookup(double p, double[] positions, AxisTable table, int i) {
+        int n = positions.length;
+        if (n == 1) {
+            return (Math.abs(p - positions[0]) <= EDGE_TOLERANCE) ? table.set(i, 0, 0, 0) : table.set(i, -1, -1, 0);
+        }
+        boolean increasing = positions[n - 1] > positions[0];
+        double first = increasing ? positions[0] : positions[n - 1];
+        double last = increasing ? positions[n - 1] : positions[0];
+        if (p < first - EDGE_TOLERANCE || p > last + EDGE_TOLERANCE) return table.set(i, -1, -1, 0);
+        int lo = 0;
+        int hi = n - 1;
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            if ((positions[mid] <= p) == increasing) lo = mid;
+            else hi = mid;
+        }
+        double w = (p - positions[lo]) / (positions[hi] - positions[lo]);
+        w = Math.max(0.0, Math.min(1.0, w));
+        return table.set(i, lo, hi, w);
+    }
+
+    private static boolean monotonic(double[] values) {
+        if (values.length < 2) return true;
+        boolean increasing = values[1] > values[0];
+        for (int i = 1; i < values.length; i++) {
+            if (increasing ? values[i] <= values[i - 1] : values[i] >= values[i - 1]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,65 @@
+package org.rt.rtkj.algo;
+
+import lombok.extern.log4j.Log4j2;
+import org.rt.rtkj.dicom.PixelDecoder;
+import org.rt.rtkj.dicom.RTDose;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+/**
+ * Adds dose grids that share the same geometry, e.g. the fraction or beam doses of a plan.
+ */
+@Log4j2
+public class DoseSummation {
+
+    /**
+     * Sum dose grids voxel by voxel. The grids are summed in parallel over blocks of voxels, each block adds the
+     * stored values of every grid times its dose grid scaling directly into the result.
+     * <p>
+     * The result copies the attributes of the first grid, gets a new SOP instance UID and stores the summed dose as
+     * 32 bit unsigned values with a new dose grid scaling. The dose summation type is kept if all grids have the same
+     * type and set to MULTI_PLAN otherwise.
+     *
+     * @param doses dose grids with identical geometry
+     * @return Summed dose if all grids have the same geometry and dose units.
+     */
+    public static Optional<RTDose> sum(List<RTDose> doses) {
+        if (doses == null || doses.isEmpty()) return Optional.empty();
+        RTDose ref = doses.get(0);
+        int n = DoseGrids.size(ref);
+        for (RTDose dose : doses) {
+            if (dose == null) {
+                log.error("Unable to sum a missing dose grid");
+                return Optional.empty();
+            }
+            if (dose != ref && !DoseGrids.sameGeometry(ref, dose)) return Optional.empty();
+            if (ref.getDoseUnits() != null && !ref.getDoseUnits().equals(dose.getDoseUnits())) {
+                log.error("Dose grids have different dose units");
+                return Optional.empty();
+            }
+            if (dose.getPixelBuffer().size() != n) {
+                log.error("Number of dose values doesn't match the dimensions of the dose grid");
+                return Optional.empty();
+            }
+        }
+
+        double[] sum = new double[n];
+        int chunks = (n + DoseGrids.CHUNK_SIZE - 1) / DoseGrids.CHUNK_SIZE;
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            int from = c * DoseGrids.CHUNK_SIZE;
+            int len = Math.min(DoseGrids.CHUNK_SIZE, n - from);
+            for (RTDose dose : doses) {
+                PixelDecoder.accumulate(dose.getPixelBuffer(), from, len, dose.getDoseGridScaling(), sum, from);
+            }
+        });
+
+        RTDose result = DoseGrids.copyHeader(ref);
+        boolean sameType = doses.stream().allMatch(d -> ref.getDoseSummationType() != null
+                && ref.getDoseSummationType().equals(d.getDoseSummationType()));
+        if (!sameType) result.setDoseSummationType("MULTI_PLAN");
+        DoseGrids.encode(result, sum);
+        return Optional.of(result);
+    }
+}
@@ -0,0 +1,192 @@
+package org.rt.rtkj.algo;
+
+import lombok.extern.log4j.Log4j2;
+import org.rt.rtkj.dicom.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Computes dose volume histograms of the ROIs in a structure set on a dose grid.
+ * <p>
+ * The ROIs are rasterized onto the dose grid with {@link ContourRasterizer} and the dose of every voxel inside is
+ * accumulated into bins of a fixed width. Voxels are weighted by their volume, so grids with non-uniform frame
+ * offsets are supported. Volumes are expressed in cm3.
+ */
+@Log4j2
+public class DvhCalculator {
+
+    public static final String VOLUME_UNITS = "CM3";
+    public static final String ROI_CONTRIBUTION = "INCLUDED";
+
+    /**
+     * Default bin width [Gy].
+     */
+    public static final double DEFAULT_BIN_WIDTH = 0.01;
+
+    private static final double MM3_TO_CM3 = 1e-3;
+
+    /**
+     * Decoded dose grid shared by the ROIs.
+     */
+    private static class DoseData {
+        RTDose dose;
+        GridGeometry grid;
+        double[] values;
+        double[] frameVolumes;
+    }
+
+    /**
+     * Accumulated histogram of a ROI.
+     */
+    private static class Histogram {
+        final double binWidth;
+        double[] volumes = new double[256];
+        int bins = 0;
+        double volume = 0.0;
+        double integral = 0.0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+
+        Histogram(double binWidth) {
+            this.binWidth = binWidth;
+        }
+
+        void add(double dose, double volume) {
+            int bin = (int) (Math.max(dose, 0.0) / binWidth);
+            if (bin >= volumes.length) volumes = Arrays.copyOf(volumes, Math.max(bin + 1, 2 * volumes.length));
+            bins = Math.max(bins, bin + 1);
+            volumes[bin] += volume;
+            this.volume += volume;
+            integral += dose * volume;
+            min = Math.min(min, dose);
+            max = Math.max(max, dose);
+        }
+    }
+
+    /**
+     * Compute the cumulative DVH of every ROI in a structure set with the default bin width.
+     */
+    public static List<DvhItem> compute(RTDose dose, RTStructureSet structureSet) {
+        return compute(dose, structureSet, DEFAULT_BIN_WIDTH, DvhType.CUMULATIVE);
+    }
+
+    /**
+     * Compute the DVH of every ROI in a structure set. The ROIs are processed in parallel.
+     *
+     * @param dose         dose grid
+     * @param structureSet structure set with the ROI contours
+     * @param binWidth     dose bin width in the dose units
+     * @param type         cumulative or differential histogram
+     * @return DVH per ROI with contours inside the dose grid, in the order of the ROI contour sequence
+     */
+    public static List<DvhItem> compute(RTDose dose, RTStructureSet structureSet, double binWidth, DvhType type) {
+        if (structureSet == null || structureSet.getRoiContourSequence() == null) return new ArrayList<>();
+        if (dose != null && structureSet.getFrameOfReferenceUID() != null && dose.getFrameOfReferenceUID() != null
+                && !structureSet.getFrameOfReferenceUID().equals(dose.getFrameOfReferenceUID())) {
+            log.error("Dose grid and structure set have a different frame of reference");
+            return new ArrayList<>();
+        }
+        var optData = prepare(dose, binWidth);
+        if (optData.isEmpty()) return new ArrayList<>();
+        DoseData data = optData.get();
+        return structureSet.getRoiContourSequence().parallelStream()
+                .map(roi -> compute(data, roi, binWidth, type))
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Compute the DVH of a single ROI.
+     *
+     * @param dose     dose grid
+     * @param roi      ROI contours
+     * @param binWidth dose bin width in the dose units
+     * @param type     cumulative or differential histogram
+     * @return DVH if the ROI contains at least one voxel of the dose grid
+     */
+    public static Optional<DvhItem> compute(RTDose dose, ROIContourItem roi, double binWidth, DvhType type) {
+        var optData = prepare(dose, binWidth);
+        if (optData.isEmpty()) return Optional.empty();
+        return compute(optData.get(), roi, binWidth, type);
+    }
+
+    private static Optional<DoseData> prepare(RTDose dose, double binWidth) {
+        if (dose == null) return Optional.empty();
+        if (!(binWidth > 0.0)) {
+            log.error("DVH bin width must be positive");
+            return Optional.empty();
+        }
+        var optGrid = GridGeometry.of(dose);
+        if (optGrid.isEmpty()) return Optional.empty();
+        GridGeometry grid = optGrid.get();
+        if (dose.getPixelBuffer().size() != grid.size()) {
+            log.error("Number of dose values doesn't match the dimensions of the dose grid");
+            return Optional.empty();
+        }
+        DoseData data = new DoseData();
+        data.dose = dose;
+        data.grid = grid;
+        data.values = DoseGrids.decode(dose);
+        data.frameVolumes = new double[grid.getFrames()];
+        double area = grid.getPixelSpacing()[0] * grid.getPixelSpacing()[1];
+        for (int k = 0; k < grid.getFrames(); k++) {
+            double thickness = grid.frameThickness(k);
+            if (thickness <= 0.0) thickness = dose.getSliceThicknes();
+            data.frameVolumes[k] = area * thickness * MM3_TO_CM3;
+        }
+        return Optional.of(data);
+    }
+
+    private static Optional<DvhItem> compute(DoseData data, ROIContourItem roi, double binWidth, DvhType type) {
+        Histogram histogram = new Histogram(binWidth);
+        int columns = data.grid.getColumns();
+        int rows = data.grid.getRows();
+        ContourRasterizer.rasterize(roi, data.grid, (frame, row, first, last) -> {
+            double volume = data.frameVolumes[frame];
+            int offset = (frame * rows + row) * columns;
+            for (int i = offset + first; i <= offset + last; i++) {
+                histogram.add(data.values[i], volume);
+            }
+        });
+        if (histogram.bins == 0) {
+            log.error(String.format("ROI %d doesn't contain any voxel of the dose grid", roi.getReferencedROINumber()));
+            return Optional.empty();
+        }
+        return Optional.of(item(data.dose, roi, histogram, type));
+    }
+
+    private static DvhItem item(RTDose dose, ROIContourItem roi, Histogram histogram, DvhType type) {
+        int n = histogram.bins;
+        double[] volumes = Arrays.copyOf(histogram.volumes, n);
+        if (type == DvhType.CUMULATIVE) {
+            for (int i = n - 2; i >= 0; i--) volumes[i] += volumes[i + 1];
+        }
+        // DVH Data contains (bin width, volume) pairs
+        double[] dvhData = new double[2 * n];
+        for (int i = 0; i < n; i++) {
+            dvhData[2 * i] = histogram.binWidth;
+            dvhData[2 * i + 1] = volumes[i];
+        }
+        DVHReferencedROIItem ref = new DVHReferencedROIItem();
+        ref.setDvhROIContributionType(ROI_CONTRIBUTION);
+        ref.setReferencedROINumber(roi.getReferencedROINumber());
+        DvhItem item = new DvhItem();
+        item.setDvhType(type.name());
+        item.setDoseUnits(dose.getDoseUnits());
+        item.setDoseType(dose.getDoseType());
+        item.setDvhDoseScaling(1.0);
+        item.setDvhVolumeUnits(VOLUME_UNITS);
+        item.setDvhNumberOfBins(n);
+        item.setDvhData(dvhData);
+        item.getDvhReferencedROISequence().add(ref);
+        item.setDvhMinimumDose(histogram.min);
+        item.setDvhMaximumDose(histogram.max);
+        item.setDvhMeanDose(histogram.integral / histogram.volume);
+        return item;
+    }
+}
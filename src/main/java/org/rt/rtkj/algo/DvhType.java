@@ -0,0 +1,15 @@
+package org.rt.rtkj.algo;
+
+/**
+ * Type of a dose volume histogram (DVH Type).
+ */
+public enum DvhType {
+    /**
+     * Volume receiving at least the lower dose of each bin.
+     */
+    CUMULATIVE,
+    /**
+     * Volume receiving a dose within each bin.
+     */
+    DIFFERENTIAL
+}
@@ -0,0 +1,179 @@
+package org.rt.rtkj.algo;
+
+import lombok.Data;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.math3.util.Precision;
+import org.rt.rtkj.dicom.CT;
+import org.rt.rtkj.dicom.CT3d;
+import org.rt.rtkj.dicom.RTDose;
+import org.rt.rtkj.utils.Geometry;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Voxel positions of a 3D grid as described by DICOM: a stack of equally sized planes with a common orientation,
+ * positioned along the plane normal by a (not necessarily uniform) list of frame offsets.
+ * <p>
+ * The voxel at [column, row, frame] is located at
+ * {@code imagePositionPatient + column * pixelSpacing[1] * rowCosine + row * pixelSpacing[0] * columnCosine
+ * + frameOffsets[frame] * normal}.
+ */
+@Data
+@Log4j2
+public class GridGeometry {
+    private int columns;
+    private int rows;
+    private int frames;
+    private double[] imagePositionPatient;
+    private double[] imageOrientationPatient;
+    private double[] pixelSpacing; // 0: row spacing / 1: column spacing
+    private double[] frameOffsets; // relative to the image position along the normal
+
+    public int size() {
+        return columns * rows * frames;
+    }
+
+    public double[] getRowCosine() {
+        return new double[]{imageOrientationPatient[0], imageOrientationPatient[1], imageOrientationPatient[2]};
+    }
+
+    public double[] getColumnCosine() {
+        return new double[]{imageOrientationPatient[3], imageOrientationPatient[4], imageOrientationPatient[5]};
+    }
+
+    public double[] getNormal() {
+        return Geometry.sliceNormal(imageOrientationPatient);
+    }
+
+    /**
+     * Physical position of a voxel.
+     *
+     * @param column column index
+     * @param row    row index
+     * @param frame  frame index
+     * @return Position [x, y, z]
+     */
+    public double[] position(int column, int row, int frame) {
+        double[] u = getRowCosine();
+        double[] v = getColumnCosine();
+        double[] n = getNormal();
+        double c = column * pixelSpacing[1];
+        double r = row * pixelSpacing[0];
+        double f = frameOffsets[frame];
+        double[] p = new double[3];
+        for (int i = 0; i < 3; i++) {
+            p[i] = imagePositionPatient[i] + c * u[i] + r * v[i] + f * n[i];
+        }
+        return p;
+    }
+
+    /**
+     * Extent of a frame along the normal: half the distance between its neighbouring frames, or the distance to the
+     * only neighbour for the first and last frame.
+     *
+     * @param frame frame index
+     * @return Frame thickness [mm], 0 for a grid with a single frame
+     */
+    public double frameThickness(int frame) {
+        if (frames < 2) return 0.0;
+        int lo = Math.max(frame - 1, 0);
+        int hi = Math.min(frame + 1, frames - 1);
+        return Math.abs(frameOffsets[hi] - frameOffsets[lo]) / (hi - lo);
+    }
+
+    /**
+     * Check if two grids have the same orientation.
+     */
+    public boolean sameOrientation(GridGeometry other) {
+        for (int i = 0; i < 6; i++) {
+            if (!Precision.equals(imageOrientationPatient[i], other.imageOrientationPatient[i], 1e-6)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Geometry of a dose grid. The grid frame offset vector is converted to offsets relative to the image position
+     * when it contains absolute z-coordinates (first offset not equal to 0).
+     *
+     * @param dose dose grid
+     * @return Geometry if the position, orientation, pixel spacing and frame offsets are valid.
+     */
+    public static Optional<GridGeometry> of(RTDose dose) {
+        if (dose == null) return Optional.empty();
+        var ipp = dose.getImagePositionPatient();
+        var iop = dose.getImageOrientationPatient();
+        var spacing = dose.getPixelSpacing();
+        var offsets = dose.getGridFrameOffsetVector();
+        if (ipp == null || ipp.length != 3 || iop == null || iop.length != 6 || spacing == null || spacing.length != 2) {
+            log.error("Dose grid has an invalid image position, orientation or pixel spacing");
+            return Optional.empty();
+        }
+        int frames = Math.max(dose.getNumberOfFrames(), 1);
+        double[] relative = new double[frames];
+        if (offsets != null && offsets.length == frames) {
+            double first = offsets[0];
+            for (int k = 0; k < frames; k++) {
+                relative[k] = (first == 0.0) ? offsets[k] : offsets[k] - ipp[2];
+            }
+        } else if (frames > 1) {
+            log.error("Grid frame offset vector doesn't match the number of frames");
+            return Optional.empty();
+        }
+        GridGeometry geometry = new GridGeometry();
+        geometry.setColumns(dose.getColumns());
+        geometry.setRows(dose.getRows());
+        geometry.setFrames(frames);
+        geometry.setImagePositionPatient(ipp.clone());
+        geometry.setImageOrientationPatient(iop.clone());
+        geometry.setPixelSpacing(spacing.clone());
+        geometry.setFrameOffsets(relative);
+        return Optional.of(geometry);
+    }
+
+    /**
+     * Geometry of a CT series. The slices are ordered by their position along the slice normal, the image position
+     * of the grid is the position of the first slice.
+     *
+     * @param ct CT series
+     * @return Geometry if the series contains slices with a valid position, orientation and pixel spacing.
+     */
+    public static Optional<GridGeometry> of(CT3d ct) {
+        if (ct == null || ct.isEmpty()) return Optional.empty();
+        var optIop = ct.getImageOrientation();
+        var optSpacing = ct.getPixelSpacing();
+        if (optIop.isEmpty() || optIop.get().length != 6 || optSpacing.isEmpty() || optSpacing.get().length != 2) {
+            log.error("CT series has an invalid image orientation or pixel spacing");
+            return Optional.empty();
+        }
+        double[] iop = optIop.get();
+        double[] normal = Geometry.sliceNormal(iop);
+        List<CT> slices = new ArrayList<>(ct.size());
+        for (int i = 0; i < ct.size(); i++) {
+            var slice = ct.get(i).orElseThrow();
+            if (slice.getImagePositionPatient() == null || slice.getImagePositionPatient().length != 3) {
+                log.error("CT slice has an invalid image position");
+                return Optional.empty();
+            }
+            slices.add(slice);
+        }
+        slices.sort(Comparator.comparingDouble(s -> Geometry.dot(s.getImagePositionPatient(), normal)));
+        double[] ipp = slices.get(0).getImagePositionPatient();
+        double z0 = Geometry.dot(ipp, normal);
+        double[] offsets = new double[slices.size()];
+        for (int k = 0; k < offsets.length; k++) {
+            offsets[k] = Geometry.dot(slices.get(k).getImagePositionPatient(), normal) - z0;
+        }
+        GridGeometry geometry = new GridGeometry();
+        geometry.setColumns(ct.getColumns().orElse(0));
+        geometry.setRows(ct.getRows().orElse(0));
+        geometry.setFrames(slices.size());
+        geometry.setImagePositionPatient(ipp.clone());
+        geometry.setImageOrientationPatient(iop.clone());
+        geometry.setPixelSpacing(optSpacing.get().clone());
+        geometry.setFrameOffsets(offsets);
+        return Optional.of(geometry);
+    }
+}
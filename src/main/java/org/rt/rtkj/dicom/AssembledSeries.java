@@ -0,0 +1,36 @@
+package org.rt.rtkj.dicom;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CT series emitted by the {@link SeriesAssembler}.
+ */
+@Data
+public class AssembledSeries {
+    private String seriesInstanceUID = "";
+    private CT3d ct;
+    /**
+     * Expected number of slices, -1 if unknown.
+     */
+    private int expectedSlices = -1;
+    /**
+     * True if the expected number of slices (when known) arrived and the slices are equidistant.
+     */
+    private boolean complete;
+    /**
+     * True if the series was emitted because no slice arrived within the timeout.
+     */
+    private boolean timedOut;
+    private List<String> errors = new ArrayList<>();
+
+    public void addError(String msg) {
+        errors.add(msg);
+    }
+
+    public boolean hasError() {
+        return !errors.isEmpty();
+    }
+}
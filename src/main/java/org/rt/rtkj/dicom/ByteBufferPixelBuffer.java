@@ -0,0 +1,100 @@
+package org.rt.rtkj.dicom;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Pixel buffer that reads the samples through a {@link ShortBuffer} or {@link IntBuffer} view on an ordered byte
+ * buffer. The byte order of the buffer must match the byte order of the samples.
+ */
+@EqualsAndHashCode
+public class ByteBufferPixelBuffer implements PixelBuffer {
+    private final ByteBuffer bytes;
+    @Getter
+    private final int bitsAllocated;
+    @Getter
+    private final PixelRepresentation pixelRepresentation;
+    @EqualsAndHashCode.Exclude
+    private final ShortBuffer shorts;
+    @EqualsAndHashCode.Exclude
+    private final IntBuffer ints;
+
+    /**
+     * @param bytes               ordered byte buffer, the samples start at the current position
+     * @param bitsAllocated       bits allocated per sample
+     * @param pixelRepresentation pixel representation
+     * @throws UnsupportedOperationException if the bits allocated are not 16 or 32
+     */
+    public ByteBufferPixelBuffer(ByteBuffer bytes, int bitsAllocated, PixelRepresentation pixelRepresentation) throws UnsupportedOperationException {
+        this.bytes = bytes.slice().order(bytes.order());
+        this.bitsAllocated = bitsAllocated;
+        this.pixelRepresentation = (pixelRepresentation == null) ? PixelRepresentation.NONE : pixelRepresentation;
+        if (bitsAllocated == 16) {
+            shorts = this.bytes.asShortBuffer();
+            ints = null;
+        } else if (bitsAllocated == 32) {
+            shorts = null;
+            ints = this.bytes.asIntBuffer();
+        } else {
+            throw new UnsupportedOperationException("Currently only 16 or 32 bits allocated per sample are supported.");
+        }
+    }
+
+    @Override
+    public int size() {
+        return (shorts != null) ? shorts.limit() : ints.limit();
+    }
+
+    @Override
+    public long get(int index) throws IndexOutOfBoundsException {
+        if (shorts != null) {
+            if (pixelRepresentation == PixelRepresentation.UNSIGNED) return shorts.get(index) & 0xFFFF;
+            return shorts.get(index);
+        }
+        if (pixelRepresentation == PixelRepresentation.UNSIGNED) return ints.get(index) & 0xFFFFFFFFL;
+        return ints.get(index);
+    }
+
+    @Override
+    public void set(int index, long value) throws IndexOutOfBoundsException {
+        if (shorts != null) shorts.put(index, (short) value);
+        else ints.put(index, (int) value);
+    }
+
+    /**
+     * View on the underlying bytes, positioned at the first sample.
+     *
+     * @return byte buffer with the byte order of the samples
+     */
+    public ByteBuffer asByteBuffer() {
+        return bytes.duplicate().order(bytes.order());
+    }
+
+    /**
+     * View on the 16 bit samples.
+     *
+     * @return short buffer view, empty if the samples are not 16 bit
+     */
+    public ShortBuffer asShortBuffer() {
+        return (shorts != null) ? shorts.duplicate() : ShortBuffer.allocate(0);
+    }
+
+    /**
+     * View on the 32 bit samples.
+     *
+     * @return int buffer view, empty if the samples are not 32 bit
+     */
+    public IntBuffer asIntBuffer() {
+        return (ints != null) ? ints.duplicate() : IntBuffer.allocate(0);
+    }
+
+    @Override
+    public String toString() {
+        return "ByteBufferPixelBuffer(size=" + size() + ", bitsAllocated=" + bitsAllocated +
+                ", pixelRepresentation=" + pixelRepresentation + ")";
+    }
+}
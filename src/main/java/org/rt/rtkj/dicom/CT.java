@@ -100,7 +100,7 @@ public class CT extends MetaHeader implements DicomImage<Long>, HasImagePosition
     private LocalTime performedProcedureStepStartTime;
     private String performedProcedureStepID;
     private List<ReducedCodeItem> performedProtocolCodeSequence = new ArrayList<>();
-    private List<Long> pixelData = new ArrayList<>();
+    private PixelBuffer pixelBuffer = PixelBuffer.empty();
 
     public CT(MetaHeader meta) {
         super(meta);
@@ -109,4 +109,23 @@ public class CT extends MetaHeader implements DicomImage<Long>, HasImagePosition
     public Optional<PixelRepresentation> getPixelRepresentation() {
         return Optional.ofNullable(pixelRepresentation);
     }
+
+    /**
+     * Stored pixel values as a list view on the primitive pixel buffer.
+     *
+     * @return List view on the pixel buffer
+     */
+    @Override
+    public List<Long> getPixelData() {
+        return pixelBuffer.asList();
+    }
+
+    /**
+     * Copy the stored pixel values into a new pixel buffer based on the bits allocated and pixel representation.
+     *
+     * @param pixelData stored pixel values
+     */
+    public void setPixelData(List<Long> pixelData) {
+        pixelBuffer = PixelBuffer.of(pixelData, bitsAllocated, pixelRepresentation);
+    }
 }
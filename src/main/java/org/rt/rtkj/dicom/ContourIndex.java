@@ -0,0 +1,263 @@
+package org.rt.rtkj.dicom;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Spatial index over the CLOSED_PLANAR contours of a structure set, for point-in-ROI and box queries.
+ * <p>
+ * Contours are assumed to be axial: the contours of every ROI are grouped into planes by their z-coordinate and every
+ * contour keeps its bounding box, so a query only tests the contours of the nearest plane of each ROI whose bounding
+ * box contains the point. A plane covers the slab up to half way to the neighbouring planes of the same ROI, so a
+ * ROI that is only contoured on some slices also covers the slices in between. The first and last plane of a ROI
+ * extend half way to the neighbouring plane of the structure set. Within a plane, the contours of a ROI are combined
+ * with the even-odd rule, so contours inside other contours of the same ROI are holes.
+ */
+public class ContourIndex {
+
+    /**
+     * Tolerance [mm] used to group contours into planes.
+     */
+    public static final double PLANE_TOLERANCE = 1e-3;
+
+    private static final String CLOSED_PLANAR = "CLOSED_PLANAR";
+
+    private static class Entry {
+        int roiNumber;
+        ContourItem contour;
+        double z;
+        double minX, minY, maxX, maxY;
+
+        boolean contains(double x, double y) {
+            return x >= minX && x <= maxX && y >= minY && y <= maxY;
+        }
+    }
+
+    /**
+     * Contour planes of a single ROI.
+     */
+    private static class RoiPlanes {
+        double[] planes;
+        Entry[][] entries;
+        // extent of the slab below the first and above the last plane
+        double below, above;
+
+        /**
+         * @return Lower bound of the slab covered by plane i
+         */
+        double low(int i) {
+            return (i == 0) ? planes[0] - below : 0.5 * (planes[i - 1] + planes[i]);
+        }
+
+        /**
+         * @return Upper bound of the slab covered by plane i
+         */
+        double high(int i) {
+            int n = planes.length;
+            return (i == n - 1) ? planes[n - 1] + above : 0.5 * (planes[i] + planes[i + 1]);
+        }
+
+        /**
+         * Index of the plane whose slab contains a z-coordinate.
+         *
+         * @return Plane index or -1 if z is outside of the slabs of the ROI
+         */
+        int plane(double z) {
+            int n = planes.length;
+            if (z < low(0) || z > high(n - 1)) return -1;
+            int i = Arrays.binarySearch(planes, z);
+            if (i >= 0) return i;
+            int hi = -i - 1;
+            if (hi == n) return n - 1;
+            if (hi == 0) return 0;
+            return (z - planes[hi - 1] < planes[hi] - z) ? hi - 1 : hi;
+        }
+    }
+
+    // planes per ROI, sorted by ROI number
+    private final TreeMap<Integer, RoiPlanes> rois;
+    private final int planeCount;
+
+    private ContourIndex(TreeMap<Integer, RoiPlanes> rois, int planeCount) {
+        this.rois = rois;
+        this.planeCount = planeCount;
+    }
+
+    /**
+     * Build the index of a structure set.
+     */
+    public static ContourIndex of(RTStructureSet structureSet) {
+        Map<Integer, List<Entry>> byRoi = new HashMap<>();
+        List<Entry> all = new ArrayList<>();
+        if (structureSet != null && structureSet.getRoiContourSequence() != null) {
+            for (ROIContourItem roi : structureSet.getRoiContourSequence()) {
+                for (ContourItem contour : roi.getContourSequence()) {
+                    if (!CLOSED_PLANAR.equals(contour.getContourGeometricType()) || contour.size() < 3) continue;
+                    Entry entry = entry(roi.getReferencedROINumber(), contour);
+                    byRoi.computeIfAbsent(entry.roiNumber, k -> new ArrayList<>()).add(entry);
+                    all.add(entry);
+                }
+            }
+        }
+        double[] planes = planes(all).stream().mapToDouble(plane -> plane.get(0).z).toArray();
+        TreeMap<Integer, RoiPlanes> rois = new TreeMap<>();
+        for (var e : byRoi.entrySet()) {
+            List<List<Entry>> grouped = planes(e.getValue());
+            RoiPlanes roi = new RoiPlanes();
+            roi.planes = grouped.stream().mapToDouble(plane -> plane.get(0).z).toArray();
+            roi.entries = grouped.stream().map(plane -> plane.toArray(new Entry[0])).toArray(Entry[][]::new);
+            roi.below = halfSpacing(planes, roi.planes[0], -1);
+            roi.above = halfSpacing(planes, roi.planes[roi.planes.length - 1], 1);
+            rois.put(e.getKey(), roi);
+        }
+        return new ContourIndex(rois, planes.length);
+    }
+
+    /**
+     * Group contours into planes sorted by z.
+     */
+    private static List<List<Entry>> planes(List<Entry> list) {
+        list.sort(Comparator.comparingDouble(e -> e.z));
+        List<List<Entry>> planes = new ArrayList<>();
+        int start = 0;
+        for (int i = 1; i <= list.size(); i++) {
+            if (i == list.size() || list.get(i).z - list.get(start).z > PLANE_TOLERANCE) {
+                planes.add(new ArrayList<>(list.subList(start, i)));
+                start = i;
+            }
+        }
+        return planes;
+    }
+
+    /**
+     * Half the distance from a plane to the neighbouring plane of the structure set in a direction, or to the
+     * neighbouring plane in the opposite direction if the plane is the outermost one.
+     */
+    private static double halfSpacing(double[] planes, double z, int direction) {
+        int n = planes.length;
+        if (n < 2) return PLANE_TOLERANCE;
+        int i = Arrays.binarySearch(planes, z);
+        if (i < 0) i = -i - 1;
+        i = Math.min(Math.max(i, 0), n - 1);
+        int j = i + direction;
+        if (j < 0 || j >= n) j = i - direction;
+        return Math.max(0.5 * Math.abs(planes[j] - planes[i]), PLANE_TOLERANCE);
+    }
+
+    private static Entry entry(int roiNumber, ContourItem contour) {
+        Entry entry = new Entry();
+        entry.roiNumber = roiNumber;
+        entry.contour = contour;
+        entry.minX = entry.minY = Double.POSITIVE_INFINITY;
+        entry.maxX = entry.maxY = Double.NEGATIVE_INFINITY;
+        int n = contour.size();
+        double z = 0.0;
+        for (int i = 0; i < n; i++) {
+            double x = contour.getX(i);
+            double y = contour.getY(i);
+            entry.minX = Math.min(entry.minX, x);
+            entry.maxX = Math.max(entry.maxX, x);
+            entry.minY = Math.min(entry.minY, y);
+            entry.maxY = Math.max(entry.maxY, y);
+            z += contour.getZ(i);
+        }
+        entry.z = z / n;
+        return entry;
+    }
+
+    /**
+     * @return Number of contour planes of the structure set
+     */
+    public int size() {
+        return planeCount;
+    }
+
+    /**
+     * Find the ROIs containing a point.
+     *
+     * @return ROI numbers in increasing order
+     */
+    public List<Integer> find(double x, double y, double z) {
+        List<Integer> found = new ArrayList<>();
+        for (var e : rois.entrySet()) {
+            if (contains(e.getValue(), x, y, z)) found.add(e.getKey());
+        }
+        return found;
+    }
+
+    /**
+     * Check if a ROI contains a point.
+     */
+    public boolean contains(int roiNumber, double x, double y, double z) {
+        RoiPlanes roi = rois.get(roiNumber);
+        return roi != null && contains(roi, x, y, z);
+    }
+
+    private static boolean contains(RoiPlanes roi, double x, double y, double z) {
+        int p = roi.plane(z);
+        if (p < 0) return false;
+        boolean inside = false;
+        for (Entry entry : roi.entries[p]) {
+            if (entry.contains(x, y) && crossings(entry.contour, x, y)) inside = !inside;
+        }
+        return inside;
+    }
+
+    /**
+     * Find the ROIs with a contour whose bounding box intersects a box. A contour covers the same slab as in the
+     * point queries. This is a candidate test on the bounding boxes, the contours themselves may not intersect the
+     * box.
+     *
+     * @param min corner of the box with the smallest coordinates
+     * @param max corner of the box with the largest coordinates
+     * @return ROI numbers in increasing order
+     */
+    public List<Integer> find(double[] min, double[] max) {
+        List<Integer> found = new ArrayList<>();
+        for (var e : rois.entrySet()) {
+            if (intersects(e.getValue(), min, max)) found.add(e.getKey());
+        }
+        return found;
+    }
+
+    private static boolean intersects(RoiPlanes roi, double[] min, double[] max) {
+        int n = roi.planes.length;
+        // first plane whose slab reaches the bottom of the box, the slabs are contiguous and increasing
+        int lo = 0;
+        int hi = n;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (roi.high(mid) < min[2]) lo = mid + 1;
+            else hi = mid;
+        }
+        for (int p = lo; p < n && roi.low(p) <= max[2]; p++) {
+            for (Entry entry : roi.entries[p]) {
+                if (entry.maxX >= min[0] && entry.minX <= max[0] && entry.maxY >= min[1] && entry.minY <= max[1])
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Even-odd test of a point against a single contour.
+     *
+     * @return True if a ray from the point crosses the contour an odd number of times
+     */
+    private static boolean crossings(ContourItem contour, double x, double y) {
+        double[] data = contour.getContourData();
+        int n = contour.size();
+        boolean odd = false;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            double xi = data[3 * i], yi = data[3 * i + 1];
+            double xj = data[3 * j], yj = data[3 * j + 1];
+            if ((yi <= y) != (yj <= y) && x < xi + (y - yi) * (xj - xi) / (yj - yi)) odd = !odd;
+        }
+        return odd;
+    }
+}
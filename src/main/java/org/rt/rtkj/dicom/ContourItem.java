@@ -11,5 +11,27 @@ public class ContourItem {
     private String contourGeometricType;
     private int numberOfContourPoints;
     private int contourNumber;
-    private List<Double> contourData = new ArrayList<>();
+    /**
+     * Packed (x, y, z) triplets of the contour points [mm].
+     */
+    private double[] contourData = new double[0];
+
+    /**
+     * @return Number of points in the contour data
+     */
+    public int size() {
+        return (contourData == null) ? 0 : contourData.length / 3;
+    }
+
+    public double getX(int index) {
+        return contourData[3 * index];
+    }
+
+    public double getY(int index) {
+        return contourData[3 * index + 1];
+    }
+
+    public double getZ(int index) {
+        return contourData[3 * index + 2];
+    }
 }
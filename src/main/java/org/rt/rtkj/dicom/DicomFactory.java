@@ -1,9 +1,14 @@
 package org.rt.rtkj.dicom;
 
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
 import lombok.extern.log4j.Log4j2;
 import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Fragments;
+import org.dcm4che3.data.Sequence;
 import org.dcm4che3.data.Tag;
 import org.dcm4che3.data.UID;
+import org.dcm4che3.io.DicomInputHandler;
 import org.dcm4che3.io.DicomInputStream;
 import org.dcm4che3.io.DicomOutputStream;
 
@@ -12,9 +17,22 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.ByteOrder;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
 
 /**
  * This factory provides a general
@@ -23,25 +41,68 @@ import java.util.List;
 public class DicomFactory {
 
     public static DicomObject read(String pathname) throws IOException, DicomException {
-        File file = new File(pathname);
-        return read(file);
+        return read(pathname, PixelDataMode.COPY);
     }
 
     public static DicomObject read(Path path) throws IOException, DicomException {
-        if (path == null) return new DicomObject();
-        return read(path.toFile());
+        return read(path, PixelDataMode.COPY);
     }
 
     public static DicomObject read(File file) throws IOException, DicomException {
+        return read(file, PixelDataMode.COPY);
+    }
+
+    public static DicomObject read(String pathname, PixelDataMode mode) throws IOException, DicomException {
+        File file = new File(pathname);
+        return read(file, mode);
+    }
+
+    public static DicomObject read(Path path, PixelDataMode mode) throws IOException, DicomException {
+        if (path == null) return new DicomObject();
+        return read(path.toFile(), mode);
+    }
+
+    /**
+     * Read a DICOM file.
+     *
+     * @param file DICOM file
+     * @param mode copy the pixel data into primitive arrays, view the pixel data bytes in place or memory map them
+     *             on first access. Deflated files can't be memory mapped and fall back to a copy.
+     * @return DicomObject with the parsed content of the file
+     * @throws IOException    if the file can't be read
+     * @throws DicomException if the content of the file is not supported
+     */
+    public static DicomObject read(File file, PixelDataMode mode) throws IOException, DicomException {
         DicomObject dicomObject = new DicomObject();
         if (file == null || !file.isFile() || !file.canRead()) {
             return dicomObject;
         }
 
-        DicomInputStream dis = new DicomInputStream(new BufferedInputStream(new FileInputStream(file)));
-        Attributes meta = dis.readFileMetaInformation();
-        var bo = (dis.bigEndian()) ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
-        Attributes dataset = dis.readDataset(-1, -1);
+        Attributes meta;
+        Attributes dataset;
+        ByteOrder bo;
+        long pixelDataOffset = -1;
+        int pixelDataLength = -1;
+        try (DicomInputStream dis = new DicomInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            meta = dis.readFileMetaInformation();
+            bo = (dis.bigEndian()) ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+            if (mode == PixelDataMode.MAPPED && UID.DeflatedExplicitVRLittleEndian.equals(dis.getTransferSyntax())) {
+                // The stream position counts inflated bytes, it isn't an offset in the file.
+                log.warn(String.format("Deflated DICOM file %s can't be memory mapped, copying the pixel data",
+                        file.toString()));
+                mode = PixelDataMode.COPY;
+            }
+            if (mode == PixelDataMode.MAPPED) {
+                // Stops after reading the header of the PixelData element, the stream is positioned at its value.
+                dataset = dis.readDataset(-1, Tag.PixelData);
+                if (dis.tag() == Tag.PixelData) {
+                    pixelDataOffset = dis.getPosition();
+                    pixelDataLength = dis.length();
+                }
+            } else {
+                dataset = dis.readDataset(-1, -1);
+            }
+        }
         if (!dataset.contains(Tag.SOPClassUID)) {
             log.error("DICOM stream doesn't contain a SOPClassUID");
             return dicomObject;
@@ -50,11 +111,11 @@ public class DicomFactory {
         String sopClassUID = dataset.getString(Tag.SOPClassUID);
         switch (sopClassUID) {
             case UID.CTImageStorage:
-                var ct = Reader.ct(meta, dataset, bo);
+                var ct = Reader.ct(meta, dataset, bo, mode);
                 ct.ifPresent(dicomObject::set);
                 break;
             case UID.PositronEmissionTomographyImageStorage:
-                var pt = Reader.pt(meta, dataset, bo);
+                var pt = Reader.pt(meta, dataset, bo, mode);
                 pt.ifPresent(dicomObject::set);
                 break;
             case UID.RTStructureSetStorage:
@@ -62,7 +123,7 @@ public class DicomFactory {
                 ss.ifPresent(dicomObject::set);
                 break;
             case UID.RTDoseStorage:
-                var rtd = Reader.rtDose(meta, dataset, bo);
+                var rtd = Reader.rtDose(meta, dataset, bo, mode);
                 rtd.ifPresent(dicomObject::set);
                 break;
             case UID.SpatialRegistrationStorage:
@@ -73,10 +134,29 @@ public class DicomFactory {
                 log.error(String.format("Trying to read an unsupported DICOM file [SOPClassUID: %s]", sopClassUID));
                 break;
         }
+        if (mode == PixelDataMode.MAPPED)
+            mapPixelData(dicomObject, file.toPath(), pixelDataOffset, pixelDataLength, bo);
         dicomObject.setPathname(file.getAbsolutePath());
         return dicomObject;
     }
 
+    private static void mapPixelData(DicomObject dicomObject, Path path, long offset, int length, ByteOrder bo) {
+        if (!dicomObject.hasCT() && !dicomObject.hasPT() && !dicomObject.hasRTDose()) return;
+        if (offset < 0 || length < 0) {
+            // Missing or encapsulated (undefined length) pixel data can't be mapped as raw samples.
+            String msg = String.format("Unable to memory map the pixel data of %s", path.toString());
+            log.error(msg);
+            dicomObject.addError(msg);
+            return;
+        }
+        dicomObject.getCt().ifPresent(ct -> ct.setPixelBuffer(new MappedPixelBuffer(path, offset, length,
+                ct.getBitsAllocated(), ct.getPixelRepresentation().orElse(PixelRepresentation.NONE), bo)));
+        dicomObject.getPt().ifPresent(pt -> pt.setPixelBuffer(new MappedPixelBuffer(path, offset, length,
+                pt.getBitsAllocated(), pt.getPixelRepresentation().orElse(PixelRepresentation.NONE), bo)));
+        dicomObject.getRtdose().ifPresent(rtd -> rtd.setPixelBuffer(new MappedPixelBuffer(path, offset, length,
+                rtd.getBitsAllocated(), rtd.getPixelRepresentation(), bo)));
+    }
+
     public static List<DicomObject> read(List<String> pathnames) throws IOException, DicomException {
         if (pathnames == null || pathnames.isEmpty()) return new ArrayList<>();
         List<DicomObject> list = new ArrayList<>(pathnames.size());
@@ -87,6 +167,170 @@ public class DicomFactory {
         return list;
     }
 
+    /**
+     * Read DICOM files concurrently, one task per file on a fixed thread pool that is shut down once all files are
+     * read.
+     *
+     * @param paths DICOM files
+     * @return DicomObjects in the order of the paths
+     * @see #readAsync(List, Executor, int)
+     */
+    public static CompletableFuture<List<DicomObject>> readAsync(List<Path> paths) {
+        int n = ObservableDicomFactory.DEFAULT_IO_CONCURRENCY;
+        ExecutorService executor = Executors.newFixedThreadPool(n);
+        return readAsync(paths, executor, n).whenComplete((list, e) -> executor.shutdown());
+    }
+
+    /**
+     * Read DICOM files concurrently, one blocking task per file. A semaphore caps the number of files that are open
+     * at the same time, so an executor that creates a thread per task (e.g. a virtual thread per task executor) can be
+     * used without exhausting file descriptors.
+     * Files that can't be read or parsed result in a DicomObject with errors, they don't fail the returned future.
+     *
+     * @param paths        DICOM files
+     * @param executor     executor running the read tasks
+     * @param maxOpenFiles maximum number of files read at the same time
+     * @return DicomObjects in the order of the paths
+     */
+    public static CompletableFuture<List<DicomObject>> readAsync(List<Path> paths, Executor executor, int maxOpenFiles) {
+        if (paths == null || paths.isEmpty()) return CompletableFuture.completedFuture(new ArrayList<>());
+        Semaphore openFiles = new Semaphore(maxOpenFiles);
+        List<CompletableFuture<DicomObject>> futures = new ArrayList<>(paths.size());
+        for (Path path : paths) {
+            futures.add(CompletableFuture.supplyAsync(() -> read(path, openFiles), executor));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApply(v -> futures.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+    }
+
+    private static DicomObject read(Path path, Semaphore openFiles) {
+        try {
+            openFiles.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            DicomObject dicomObject = new DicomObject();
+            dicomObject.setPathname(path.toString());
+            dicomObject.addError("Interrupted while waiting to read the file.");
+            return dicomObject;
+        }
+        try {
+            return read(path);
+        } catch (IOException | DicomException | RuntimeException e) {
+            String msg = String.format("Unable to read DICOM file %s: %s", path.toString(), e.getMessage());
+            log.error(msg);
+            DicomObject dicomObject = new DicomObject();
+            dicomObject.setPathname(path.toString());
+            dicomObject.addError(msg);
+            return dicomObject;
+        } finally {
+            openFiles.release();
+        }
+    }
+
+    public static Optional<DicomHeader> scan(String pathname) throws IOException {
+        return scan(new File(pathname));
+    }
+
+    public static Optional<DicomHeader> scan(Path path) throws IOException {
+        if (path == null) return Optional.empty();
+        return scan(path.toFile());
+    }
+
+    /**
+     * Read the file meta information and the header of a DICOM file. Parsing stops at the first top level element
+     * after the FrameOfReferenceUID (0020,0052), the last element of the header summary, so the rest of the dataset
+     * is never read, also for files without a top level FrameOfReferenceUID such as RTSTRUCT.
+     *
+     * @param file DICOM file
+     * @return Header summary of the file, Optional.empty if the file can't be read or has no SOPClassUID
+     * @throws IOException if the file is not a valid DICOM stream
+     */
+    public static Optional<DicomHeader> scan(File file) throws IOException {
+        if (file == null || !file.isFile() || !file.canRead()) {
+            return Optional.empty();
+        }
+        Attributes meta;
+        Attributes dataset;
+        try (DicomInputStream dis = new DicomInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            meta = dis.readFileMetaInformation();
+            dataset = new Attributes(dis.bigEndian(), 64);
+            dis.setDicomInputHandler(new HeaderHandler());
+            try {
+                // PixelData is a hard stop in case the handler isn't called for it
+                dis.readAttributes(dataset, -1, Tag.PixelData);
+            } catch (HeaderComplete e) {
+                // the remaining elements are not part of the header summary
+            }
+        }
+        if (!dataset.contains(Tag.SOPClassUID)) {
+            log.error("DICOM stream doesn't contain a SOPClassUID");
+            return Optional.empty();
+        }
+        var hdr = Reader.header(meta, dataset);
+        hdr.ifPresent(h -> h.setPathname(file.getAbsolutePath()));
+        return hdr;
+    }
+
+    /**
+     * Signals that the header summary was read, the rest of the dataset is skipped.
+     */
+    private static class HeaderComplete extends IOException {
+    }
+
+    /**
+     * Reads the top level elements up to the FrameOfReferenceUID (0020,0052) and stops at the first top level element
+     * with a larger tag, before its value is read.
+     */
+    private static class HeaderHandler implements DicomInputHandler {
+        @Override
+        public void readValue(DicomInputStream dis, Attributes attrs) throws IOException {
+            if (attrs.getParent() == null && Integer.compareUnsigned(dis.tag(), Tag.FrameOfReferenceUID) >= 0) {
+                if (dis.tag() == Tag.FrameOfReferenceUID) dis.readValue(dis, attrs);
+                throw new HeaderComplete();
+            }
+            dis.readValue(dis, attrs);
+        }
+
+        @Override
+        public void readValue(DicomInputStream dis, Sequence seq) throws IOException {
+            dis.readValue(dis, seq);
+        }
+
+        @Override
+        public void readValue(DicomInputStream dis, Fragments frags) throws IOException {
+            dis.readValue(dis, frags);
+        }
+
+        @Override
+        public void startDataset(DicomInputStream dis) throws IOException {
+            dis.startDataset(dis);
+        }
+
+        @Override
+        public void endDataset(DicomInputStream dis) throws IOException {
+            dis.endDataset(dis);
+        }
+    }
+
+    /**
+     * Scan the headers of a list of files. Files that are not readable DICOM files are logged and skipped.
+     *
+     * @param pathnames DICOM files
+     * @return Header summaries of the DICOM files
+     */
+    public static List<DicomHeader> scan(List<String> pathnames) {
+        if (pathnames == null || pathnames.isEmpty()) return new ArrayList<>();
+        List<DicomHeader> list = new ArrayList<>(pathnames.size());
+        for (String s : pathnames) {
+            try {
+                scan(s).ifPresent(list::add);
+            } catch (IOException e) {
+                log.error(String.format("Unable to scan DICOM file %s: %s", s, e.getMessage()));
+            }
+        }
+        return list;
+    }
+
     public static boolean write(String pathname, RTDose dose) throws IOException {
         File file = new File(pathname);
         return write(file, dose);
@@ -100,16 +344,126 @@ public class DicomFactory {
         if (file == null) {
             return false;
         }
-        DicomOutputStream dos = new DicomOutputStream(file);
-        var optAttr = Writer.rtdose(dose);
-        final String errMsg = String.format("Unable to write RTDose file %s", file.toString());
-        if (optAttr.isEmpty()) {
-            log.error(errMsg);
-            return false;
+        try (DicomOutputStream dos = new DicomOutputStream(file)) {
+            if (!Writer.rtdose(dose, null, dos)) {
+                log.error(String.format("Unable to write RTDose file %s", file.toString()));
+                return false;
+            }
         }
-
-        dos.writeDataset(null, optAttr.get());
-        dos.close();
         return true;
     }
-}
\ No newline at end of file
+
+    /**
+     * Write RTDose objects to a directory as RD[SOPInstanceUID].dcm.
+     *
+     * @param doses RTDose objects
+     * @param dir   output directory
+     * @return Result per RTDose in the order of the collection
+     * @see #write(Collection, Path, int)
+     */
+    public static List<DicomWriteResult> write(Collection<RTDose> doses, Path dir) {
+        return write(doses, dir, ObservableDicomFactory.DEFAULT_IO_CONCURRENCY);
+    }
+
+    /**
+     * Write RTDose objects to a directory as RD[SOPInstanceUID].dcm. The files are written in parallel on the IO
+     * scheduler with a bounded number of objects in flight. The pixel data is encoded in chunks from the pixel buffer
+     * of each RTDose while it is written, so encoding runs on the writing threads and is bounded by the disk rather
+     * than by a separate encoding stage.
+     * Each file is first written to a temporary file in the output directory and then moved to its final name, so a
+     * file with the final name is always complete. Existing files are replaced. RTDose objects that share a SOP
+     * instance UID would overwrite each other and are reported as errors without being written.
+     *
+     * @param doses         RTDose objects
+     * @param dir           output directory
+     * @param ioConcurrency maximum number of files encoded and written concurrently
+     * @return Result per RTDose in the order of the collection
+     */
+    public static List<DicomWriteResult> write(Collection<RTDose> doses, Path dir, int ioConcurrency) {
+        List<DicomWriteResult> results = new ArrayList<>();
+        if (doses == null || doses.isEmpty()) return results;
+        Set<String> uids = new HashSet<>();
+        Set<String> duplicates = new HashSet<>();
+        for (RTDose dose : doses) {
+            if (dose != null && dose.getSopInstanceUID() != null && !uids.add(dose.getSopInstanceUID()))
+                duplicates.add(dose.getSopInstanceUID());
+        }
+        Flowable.fromIterable(doses)
+                .concatMapEager(dose -> Flowable.fromCallable(() -> write(prepare(dose, dir, duplicates)))
+                        .subscribeOn(Schedulers.io()), ioConcurrency, 1)
+                .blockingSubscribe(results::add);
+        return results;
+    }
+
+    /**
+     * RTDose with its validated header, ready to be written.
+     */
+    private static class PreparedDataset {
+        private final DicomWriteResult result = new DicomWriteResult();
+        private RTDose dose;
+        private Attributes header;
+    }
+
+    private static PreparedDataset prepare(RTDose dose, Path dir, Set<String> duplicates) {
+        PreparedDataset prepared = new PreparedDataset();
+        try {
+            String uid = (dose == null || dose.getSopInstanceUID() == null) ? "" : dose.getSopInstanceUID();
+            prepared.result.setSopInstanceUID(uid);
+            if (uid.isEmpty()) {
+                prepared.result.addError("RTDose is missing a SOP instance UID");
+                return prepared;
+            }
+            prepared.result.setPath(dir.resolve("RD" + uid + ".dcm"));
+            if (duplicates.contains(uid)) {
+                prepared.result.addError("Duplicate SOP instance UID " + uid);
+                return prepared;
+            }
+            var optHeader = Writer.rtdoseHeader(dose);
+            if (optHeader.isEmpty()) {
+                prepared.result.addError("Unable to encode RTDose " + uid);
+                return prepared;
+            }
+            prepared.dose = dose;
+            prepared.header = optHeader.get();
+        } catch (RuntimeException e) {
+            prepared.result.addError("Unable to encode RTDose: " + e.getMessage());
+        }
+        return prepared;
+    }
+
+    private static DicomWriteResult write(PreparedDataset prepared) {
+        DicomWriteResult result = prepared.result;
+        if (prepared.header == null) {
+            result.getErrors().forEach(log::error);
+            return result;
+        }
+        Path target = result.getPath();
+        Path tmp = null;
+        try {
+            // Unlike Files.createTempFile, the file gets the default permissions of the directory.
+            tmp = File.createTempFile(".RD", ".tmp", target.getParent().toFile()).toPath();
+            try (DicomOutputStream dos = new DicomOutputStream(tmp.toFile())) {
+                Writer.rtdose(prepared.dose, prepared.header, null, dos);
+            }
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            String msg = String.format("Unable to write RTDose file %s: %s", target.toString(), e.getMessage());
+            log.error(msg);
+            result.addError(msg);
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ex) {
+                    log.error(String.format("Unable to remove temporary file %s", tmp.toString()));
+                }
+            }
+        }
+        prepared.dose = null;
+        prepared.header = null;
+        return result;
+    }
+}
@@ -0,0 +1,21 @@
+package org.rt.rtkj.dicom;
+
+import lombok.Data;
+
+/**
+ * Lightweight summary of a DICOM file, used to group files by study, series and frame of reference before
+ * deciding what to load.
+ */
+@Data
+public class DicomHeader {
+    private String pathname = "";
+    private String transferSyntaxUID = "";
+    private String sopClassUID = "";
+    private String sopInstanceUID = "";
+    private Modality modality = Modality.UNKNOWN;
+    private String patientID = "";
+    private String studyInstanceUID = "";
+    private String seriesInstanceUID = "";
+    private String frameOfReferenceUID = "";
+    private int instanceNumber;
+}
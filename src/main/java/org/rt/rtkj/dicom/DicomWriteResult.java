@@ -0,0 +1,25 @@
+package org.rt.rtkj.dicom;
+
+import lombok.Data;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of writing a single DICOM object to disk.
+ */
+@Data
+public class DicomWriteResult {
+    private String sopInstanceUID = "";
+    private Path path;
+    private List<String> errors = new ArrayList<>();
+
+    public void addError(String msg) {
+        errors.add(msg);
+    }
+
+    public boolean hasError() {
+        return !errors.isEmpty();
+    }
+}
@@ -0,0 +1,58 @@
+package org.rt.rtkj.dicom;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Pixel buffer for 32 bit samples. Unsigned samples are stored as their bit pattern in an int.
+ */
+@EqualsAndHashCode
+public class IntPixelBuffer implements PixelBuffer {
+    private final int[] data;
+    @Getter
+    private final PixelRepresentation pixelRepresentation;
+
+    public IntPixelBuffer(int size, PixelRepresentation pixelRepresentation) {
+        this(new int[size], pixelRepresentation);
+    }
+
+    public IntPixelBuffer(int[] data, PixelRepresentation pixelRepresentation) {
+        this.data = data;
+        this.pixelRepresentation = (pixelRepresentation == null) ? PixelRepresentation.NONE : pixelRepresentation;
+    }
+
+    @Override
+    public int size() {
+        return data.length;
+    }
+
+    @Override
+    public long get(int index) throws IndexOutOfBoundsException {
+        if (pixelRepresentation == PixelRepresentation.UNSIGNED) return data[index] & 0xFFFFFFFFL;
+        return data[index];
+    }
+
+    @Override
+    public void set(int index, long value) throws IndexOutOfBoundsException {
+        data[index] = (int) value;
+    }
+
+    @Override
+    public int getBitsAllocated() {
+        return 32;
+    }
+
+    /**
+     * Backing array of the buffer, changes to the array are visible in the buffer.
+     *
+     * @return backing array
+     */
+    public int[] array() {
+        return data;
+    }
+
+    @Override
+    public String toString() {
+        return "IntPixelBuffer(size=" + data.length + ", pixelRepresentation=" + pixelRepresentation + ")";
+    }
+}
@@ -0,0 +1,108 @@
+package org.rt.rtkj.dicom;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Pixel buffer that memory maps the PixelData bytes of a DICOM file the first time a sample is accessed.
+ * <p>
+ * The file is mapped read only, the mapping stays valid after the file channel is closed.
+ */
+@EqualsAndHashCode
+public class MappedPixelBuffer implements PixelBuffer {
+    @Getter
+    private final Path path;
+    @Getter
+    private final long offset;
+    @Getter
+    private final int length;
+    @Getter
+    private final int bitsAllocated;
+    @Getter
+    private final PixelRepresentation pixelRepresentation;
+    @Getter
+    private final ByteOrder byteOrder;
+    @EqualsAndHashCode.Exclude
+    private volatile ByteBufferPixelBuffer mapped;
+
+    /**
+     * @param path                DICOM file
+     * @param offset              position of the first PixelData byte in the file
+     * @param length              number of PixelData bytes
+     * @param bitsAllocated       bits allocated per sample
+     * @param pixelRepresentation pixel representation
+     * @param order               byte order of the samples
+     * @throws UnsupportedOperationException if the bits allocated are not 16 or 32
+     */
+    public MappedPixelBuffer(Path path, long offset, int length, int bitsAllocated,
+                             PixelRepresentation pixelRepresentation, ByteOrder order) throws UnsupportedOperationException {
+        if (bitsAllocated != 16 && bitsAllocated != 32)
+            throw new UnsupportedOperationException("Currently only 16 or 32 bits allocated per sample are supported.");
+        this.path = path;
+        this.offset = offset;
+        this.length = length;
+        this.bitsAllocated = bitsAllocated;
+        this.pixelRepresentation = (pixelRepresentation == null) ? PixelRepresentation.NONE : pixelRepresentation;
+        this.byteOrder = order;
+    }
+
+    /**
+     * @return true if the pixel bytes have been mapped into memory
+     */
+    public boolean isMapped() {
+        return mapped != null;
+    }
+
+    ByteBufferPixelBuffer mapped() throws UncheckedIOException {
+        ByteBufferPixelBuffer local = mapped;
+        if (local == null) {
+            synchronized (this) {
+                local = mapped;
+                if (local == null) {
+                    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                        var bytes = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                        bytes.order(byteOrder);
+                        local = mapped = new ByteBufferPixelBuffer(bytes, bitsAllocated, pixelRepresentation);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Unable to map the pixel data of " + path, e);
+                    }
+                }
+            }
+        }
+        return local;
+    }
+
+    @Override
+    public int size() {
+        return length / (bitsAllocated / 8);
+    }
+
+    @Override
+    public long get(int index) throws IndexOutOfBoundsException {
+        return mapped().get(index);
+    }
+
+    /**
+     * Mapped pixel data is read only.
+     *
+     * @throws ReadOnlyBufferException always
+     */
+    @Override
+    public void set(int index, long value) throws ReadOnlyBufferException {
+        throw new ReadOnlyBufferException();
+    }
+
+    @Override
+    public String toString() {
+        return "MappedPixelBuffer(path=" + path + ", offset=" + offset + ", length=" + length +
+                ", bitsAllocated=" + bitsAllocated + ", pixelRepresentation=" + pixelRepresentation + ")";
+    }
+}
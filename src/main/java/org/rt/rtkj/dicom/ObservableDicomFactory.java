@@ -11,13 +11,34 @@ import org.dcm4che3.io.DicomInputStream;
 import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Reads DICOM files concurrently. File IO runs on the IO scheduler and parsing on the computation scheduler, each
+ * stage with a bounded number of files in flight so that large imports don't hold every dataset in memory.
+ */
 @Log4j2
 public class ObservableDicomFactory {
 
+    /**
+     * Default number of files that are read concurrently.
+     */
+    public static final int DEFAULT_IO_CONCURRENCY = 2 * Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Default number of datasets that are parsed concurrently.
+     */
+    public static final int DEFAULT_COMPUTE_CONCURRENCY = Runtime.getRuntime().availableProcessors();
+
     public static class DataAttributes {
         public String pathname;
         public List<String> errors;
@@ -38,23 +59,21 @@ public class ObservableDicomFactory {
         }
     }
 
-    private static Flowable<DataAttributes> readFile(String observablePathname) {
-        return Flowable.just(observablePathname).map(pathname ->
-        {
-            File file = new File(pathname);
-            DataAttributes da = new DataAttributes();
-            if (!file.isFile() || !file.canRead()) {
-                da.pathname = pathname;
-                if (!file.isFile()) {
-                    da.errors.add("Pathname is not a file");
-                }
-                if (!file.canRead()) {
-                    da.errors.add("Unable to read file.");
-                }
-                return da;
+    private static DataAttributes readFile(String pathname) {
+        File file = new File(pathname);
+        DataAttributes da = new DataAttributes();
+        da.pathname = pathname;
+        if (!file.isFile() || !file.canRead()) {
+            if (!file.isFile()) {
+                da.errors.add("Pathname is not a file");
+            }
+            if (!file.canRead()) {
+                da.errors.add("Unable to read file.");
             }
+            return da;
+        }
 
-            DicomInputStream dis = new DicomInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try (DicomInputStream dis = new DicomInputStream(new BufferedInputStream(new FileInputStream(file)))) {
             Attributes meta = dis.readFileMetaInformation();
             var bo = (dis.bigEndian()) ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
             Attributes dataset = dis.readDataset(-1, -1);
@@ -65,20 +84,21 @@ public class ObservableDicomFactory {
             da.meta = meta;
             da.dataset = dataset;
             da.bo = bo;
-            return da;
-        });
+        } catch (IOException e) {
+            da.errors.add(String.format("Unable to read DICOM file: %s", e.getMessage()));
+        }
+        return da;
     }
 
-    private static Flowable<DicomObject> processData(DataAttributes observableDataAttrubtes) {
-        return Flowable.just(observableDataAttrubtes).map(da -> {
-            DicomObject dicomObject = new DicomObject();
-            dicomObject.setPathname(da.pathname);
+    private static DicomObject processData(DataAttributes da) {
+        DicomObject dicomObject = new DicomObject();
+        dicomObject.setPathname(da.pathname);
+        if (da.dataset == null) {
             da.errors.forEach(dicomObject::addError);
+            return dicomObject;
+        }
 
-            if (da.dataset == null) {
-                log.error("");
-            }
-
+        try {
             String sopClassUID = da.dataset.getString(Tag.SOPClassUID);
             if (sopClassUID.equals(UID.CTImageStorage)) {
                 var ct = Reader.ct(da.meta, da.dataset, da.bo);
@@ -100,87 +120,92 @@ public class ObservableDicomFactory {
                 dicomObject.addError(msg);
                 log.error(msg);
             }
-            dicomObject.setPathname(da.pathname);
-            return dicomObject;
-        });
+        } catch (IOException | DicomException | RuntimeException e) {
+            String msg = String.format("Unable to parse DICOM file %s: %s", da.pathname, e.getMessage());
+            dicomObject.addError(msg);
+            log.error(msg);
+        }
+        da.errors.forEach(dicomObject::addError);
+        dicomObject.setPathname(da.pathname);
+        return dicomObject;
+    }
+
+    /**
+     * List all regular files below a directory. Subdirectories are listed concurrently on the IO scheduler, symbolic
+     * links to directories are not followed.
+     *
+     * @param dir         root directory
+     * @param concurrency maximum number of subdirectories listed at the same time per directory
+     * @return Pathnames of the files below the directory
+     */
+    public static Flowable<String> walk(Path dir, int concurrency) {
+        return Flowable.defer(() -> {
+            List<Path> children;
+            try (Stream<Path> stream = Files.list(dir)) {
+                children = stream.collect(Collectors.toList());
+            } catch (IOException e) {
+                log.error(String.format("Unable to list directory %s: %s", dir.toString(), e.getMessage()));
+                children = new ArrayList<>();
+            }
+            return Flowable.fromIterable(children);
+        }).flatMap(path -> {
+            if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS))
+                return walk(path, concurrency).subscribeOn(Schedulers.io());
+            if (Files.isRegularFile(path))
+                return Flowable.just(path.toString());
+            return Flowable.empty();
+        }, false, concurrency);
+    }
+
+    /**
+     * Read and parse DICOM files with a bounded number of files in flight in the IO and parse stages.
+     * Files that can't be read or parsed are emitted as a DicomObject with errors.
+     *
+     * @param pathnames          DICOM files
+     * @param ioConcurrency      maximum number of files read concurrently
+     * @param computeConcurrency maximum number of datasets parsed concurrently
+     * @return Parsed DICOM objects in completion order
+     */
+    public static Flowable<DicomObject> read(Flowable<String> pathnames, int ioConcurrency, int computeConcurrency) {
+        return pathnames
+                .flatMap(pathname -> Flowable.fromCallable(() -> readFile(pathname))
+                        .subscribeOn(Schedulers.io()), false, ioConcurrency)
+                .flatMap(da -> Flowable.fromCallable(() -> processData(da))
+                        .subscribeOn(Schedulers.computation()), false, computeConcurrency);
+    }
+
+    /**
+     * Read all files below a directory.
+     *
+     * @param root               root directory
+     * @param ioConcurrency      maximum number of files read concurrently
+     * @param computeConcurrency maximum number of datasets parsed concurrently
+     * @return Parsed DICOM objects in completion order
+     */
+    public static Flowable<DicomObject> read(Path root, int ioConcurrency, int computeConcurrency) {
+        return read(walk(root, ioConcurrency).subscribeOn(Schedulers.io()), ioConcurrency, computeConcurrency);
+    }
+
+    /**
+     * Read all files below a directory and pass each DicomObject to a callback as soon as it is parsed. The callback
+     * is invoked sequentially on the calling thread, which blocks until all files are processed.
+     *
+     * @param root     root directory
+     * @param consumer callback receiving the parsed DICOM objects
+     */
+    public static void read(Path root, Consumer<DicomObject> consumer) {
+        read(root, consumer, DEFAULT_IO_CONCURRENCY, DEFAULT_COMPUTE_CONCURRENCY);
+    }
+
+    public static void read(Path root, Consumer<DicomObject> consumer, int ioConcurrency, int computeConcurrency) {
+        read(root, ioConcurrency, computeConcurrency).blockingSubscribe(consumer::accept);
     }
 
     public static List<DicomObject> read(List<String> pathnames) {
         List<DicomObject> list = new ArrayList<>();
-        boolean exp1 = true;
-        if (exp1) {
-            Flowable.fromIterable(pathnames)
-                    .observeOn(Schedulers.io())
-                    .flatMap(ObservableDicomFactory::readFile)
-                    .observeOn(Schedulers.computation())
-                    .flatMap(ObservableDicomFactory::processData)
-                    .blockingSubscribe(list::add);
-        } else {
-            Flowable.fromIterable(pathnames)
-                    .observeOn(Schedulers.io())
-                    .map(pathname -> {
-                        File file = new File(pathname);
-                        DataAttributes da = new DataAttributes();
-                        if (!file.isFile() || !file.canRead()) {
-                            da.pathname = pathname;
-                            if (!file.isFile()) {
-                                da.errors.add("Pathname is not a file");
-                            }
-                            if (!file.canRead()) {
-                                da.errors.add("Unable to read file.");
-                            }
-                            return da;
-                        }
-
-                        DicomInputStream dis = new DicomInputStream(new BufferedInputStream(new FileInputStream(file)));
-                        Attributes meta = dis.readFileMetaInformation();
-                        var bo = (dis.bigEndian()) ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
-                        Attributes dataset = dis.readDataset(-1, -1);
-                        if (!dataset.contains(Tag.SOPClassUID)) {
-                            da.errors.add("DICOM stream doesn't contain a SOPClassUID");
-                            return da;
-                        }
-                        da.meta = meta;
-                        da.dataset = dataset;
-                        da.bo = bo;
-                        return da;
-                    })
-                    .observeOn(Schedulers.computation())
-                    .map(da -> {
-                        DicomObject dicomObject = new DicomObject();
-                        dicomObject.setPathname(da.pathname);
-                        da.errors.forEach(dicomObject::addError);
-
-                        if (da.dataset == null) {
-                            log.error("");
-                        }
-
-                        String sopClassUID = da.dataset.getString(Tag.SOPClassUID);
-                        if (sopClassUID.equals(UID.CTImageStorage)) {
-                            var ct = Reader.ct(da.meta, da.dataset, da.bo);
-                            ct.ifPresent(dicomObject::set);
-                        } else if (sopClassUID.equals(UID.PositronEmissionTomographyImageStorage)) {
-                            var pt = Reader.pt(da.meta, da.dataset, da.bo);
-                            pt.ifPresent(dicomObject::set);
-                        } else if (sopClassUID.equals(UID.RTStructureSetStorage)) {
-                            var ss = Reader.structureSet(da.meta, da.dataset, da.bo);
-                            ss.ifPresent(dicomObject::set);
-                        } else if (sopClassUID.equals(UID.RTDoseStorage)) {
-                            var rtd = Reader.rtDose(da.meta, da.dataset, da.bo);
-                            rtd.ifPresent(dicomObject::set);
-                        } else if (sopClassUID.equals(UID.SpatialRegistrationStorage)) {
-                            var sr = Reader.spatialRegistration(da.meta, da.dataset, da.bo);
-                            sr.ifPresent(dicomObject::set);
-                        } else {
-                            String msg = String.format("Trying to read an unsupported DICOM file [SOPClassUID: %s]", sopClassUID);
-                            dicomObject.addError(msg);
-                            log.error(msg);
-                        }
-                        dicomObject.setPathname(da.pathname);
-                        return dicomObject;
-                    })
-                    .blockingSubscribe(list::add);
-        }
+        if (pathnames == null || pathnames.isEmpty()) return list;
+        read(Flowable.fromIterable(pathnames), DEFAULT_IO_CONCURRENCY, DEFAULT_COMPUTE_CONCURRENCY)
+                .blockingSubscribe(list::add);
         return list;
     }
 }
@@ -120,7 +120,7 @@ public class PT extends MetaHeader implements DicomImage<Long> {
     private double doseCalibrationFactor;
     private double scatterFractionFactor;
     private int imageIndex;
-    private List<Long> pixelData = new ArrayList<>();
+    private PixelBuffer pixelBuffer = PixelBuffer.empty();
 
     public PT(MetaHeader meta) {
         super(meta);
@@ -129,4 +129,23 @@ public class PT extends MetaHeader implements DicomImage<Long> {
     public Optional<PixelRepresentation> getPixelRepresentation() {
         return Optional.ofNullable(pixelRepresentation);
     }
+
+    /**
+     * Stored pixel values as a list view on the primitive pixel buffer.
+     *
+     * @return List view on the pixel buffer
+     */
+    @Override
+    public List<Long> getPixelData() {
+        return pixelBuffer.asList();
+    }
+
+    /**
+     * Copy the stored pixel values into a new pixel buffer based on the bits allocated and pixel representation.
+     *
+     * @param pixelData stored pixel values
+     */
+    public void setPixelData(List<Long> pixelData) {
+        pixelBuffer = PixelBuffer.of(pixelData, bitsAllocated, pixelRepresentation);
+    }
 }
@@ -0,0 +1,113 @@
+package org.rt.rtkj.dicom;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Primitive backed storage of the stored pixel values of a DICOM image.
+ * <p>
+ * The type of the backing array is chosen from the number of bits allocated per sample, the pixel representation
+ * determines how the stored bits are interpreted. Pixel values are returned as a long so that unsigned 32 bit values
+ * can be represented without loss.
+ */
+public interface PixelBuffer {
+
+    /**
+     * Number of samples in the buffer.
+     *
+     * @return number of samples
+     */
+    int size();
+
+    /**
+     * Get the stored value at a given position in the buffer.
+     *
+     * @param index position in the buffer
+     * @return stored pixel value
+     * @throws IndexOutOfBoundsException if the index is outside the buffer
+     */
+    long get(int index) throws IndexOutOfBoundsException;
+
+    /**
+     * Set the stored value at a given position in the buffer. Only the lower bits allocated of the value are kept.
+     *
+     * @param index position in the buffer
+     * @param value stored pixel value
+     * @throws IndexOutOfBoundsException if the index is outside the buffer
+     */
+    void set(int index, long value) throws IndexOutOfBoundsException;
+
+    int getBitsAllocated();
+
+    PixelRepresentation getPixelRepresentation();
+
+    /**
+     * View the buffer as a fixed size list of stored values. Values are boxed on access, nothing is copied.
+     *
+     * @return List view on the buffer
+     */
+    default List<Long> asList() {
+        final PixelBuffer buffer = this;
+        return new AbstractList<>() {
+            @Override
+            public Long get(int index) {
+                return buffer.get(index);
+            }
+
+            @Override
+            public Long set(int index, Long element) {
+                long previous = buffer.get(index);
+                buffer.set(index, element);
+                return previous;
+            }
+
+            @Override
+            public int size() {
+                return buffer.size();
+            }
+        };
+    }
+
+    /**
+     * Create an empty pixel buffer.
+     *
+     * @return Pixel buffer without any samples
+     */
+    static PixelBuffer empty() {
+        return new ShortPixelBuffer(0, PixelRepresentation.NONE);
+    }
+
+    /**
+     * Allocate a zero initialised pixel buffer.
+     *
+     * @param size                number of samples
+     * @param bitsAllocated       bits allocated per sample
+     * @param pixelRepresentation pixel representation
+     * @return Pixel buffer with the requested number of samples
+     * @throws UnsupportedOperationException if the bits allocated are not 16 or 32
+     */
+    static PixelBuffer allocate(int size, int bitsAllocated, PixelRepresentation pixelRepresentation) throws UnsupportedOperationException {
+        if (bitsAllocated == 16) return new ShortPixelBuffer(size, pixelRepresentation);
+        if (bitsAllocated == 32) return new IntPixelBuffer(size, pixelRepresentation);
+        throw new UnsupportedOperationException("Currently only 16 or 32 bits allocated per sample are supported.");
+    }
+
+    /**
+     * Copy a list of stored values into a primitive pixel buffer.
+     * If the number of bits allocated is not known yet, 32 bits per sample are used.
+     *
+     * @param values              stored pixel values
+     * @param bitsAllocated       bits allocated per sample
+     * @param pixelRepresentation pixel representation
+     * @return Pixel buffer with a copy of the values
+     */
+    static PixelBuffer of(List<Long> values, int bitsAllocated, PixelRepresentation pixelRepresentation) {
+        if (values == null) return empty();
+        int n = values.size();
+        PixelBuffer buffer = allocate(n, (bitsAllocated == 16) ? 16 : 32, pixelRepresentation);
+        for (int i = 0; i < n; i++) {
+            buffer.set(i, values.get(i));
+        }
+        return buffer;
+    }
+}
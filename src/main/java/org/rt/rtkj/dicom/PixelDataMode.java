@@ -0,0 +1,20 @@
+package org.rt.rtkj.dicom;
+
+/**
+ * Determines how the PixelData element is turned into a {@link PixelBuffer}.
+ */
+public enum PixelDataMode {
+    /**
+     * Decode the samples into a primitive array.
+     */
+    COPY,
+    /**
+     * Wrap the PixelData bytes in an ordered byte buffer. Samples are not copied or converted until they are read.
+     */
+    VIEW,
+    /**
+     * Stop parsing the file before the PixelData element and memory map the pixel bytes on first access.
+     * Only applies when reading from a file, an in memory dataset is decoded as with {@link #COPY}.
+     */
+    MAPPED
+}
@@ -0,0 +1,249 @@
+package org.rt.rtkj.dicom;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Converts stored pixel values into rescaled values ({@code value * slope + intercept}), e.g. Hounsfield units or
+ * SUV, in a single pass over the samples.
+ * <p>
+ * Samples backed by a primitive array are converted directly. Samples in a byte buffer are copied in blocks into a
+ * primitive scratch array with a bulk get (which takes care of the byte order), followed by the conversion loop.
+ * The conversion loops are plain counted loops over primitive arrays without branches so that the JIT compiler can
+ * unroll and vectorize them. Other {@link PixelBuffer} implementations are copied sample by sample into the scratch
+ * array. The dispatch on the type of the pixel buffer is done once in {@link #read}, the conversions only implement
+ * a {@link BlockConsumer} for 16 and 32 bit samples.
+ */
+public class PixelDecoder {
+    private static final int BLOCK_SIZE = 4096;
+
+    /**
+     * Rescale all samples of a pixel buffer.
+     *
+     * @param src       stored pixel values
+     * @param slope     rescale slope
+     * @param intercept rescale intercept
+     * @return Rescaled pixel values
+     */
+    public static float[] rescale(PixelBuffer src, double slope, double intercept) {
+        float[] dst = new float[src.size()];
+        rescale(src, slope, intercept, dst, 0);
+        return dst;
+    }
+
+    /**
+     * Rescale all samples of a pixel buffer into an array.
+     *
+     * @param src       stored pixel values
+     * @param slope     rescale slope
+     * @param intercept rescale intercept
+     * @param dst       destination array with room for all the samples after the offset
+     * @param offset    offset in the destination array
+     * @throws IndexOutOfBoundsException if the samples don't fit in the destination
+     */
+    public static void rescale(PixelBuffer src, double slope, double intercept, float[] dst, int offset)
+            throws IndexOutOfBoundsException {
+        int n = src.size();
+        if (offset < 0 || offset + n > dst.length) throw new IndexOutOfBoundsException();
+        float s = (float) slope;
+        float b = (float) intercept;
+        read(src, 0, n, new BlockConsumer() {
+            @Override
+            public void accept(short[] block, int pos, boolean unsigned, int dstPos, int len) {
+                rescale(block, pos, unsigned, s, b, dst, offset + dstPos, len);
+            }
+
+            @Override
+            public void accept(int[] block, int pos, boolean unsigned, int dstPos, int len) {
+                rescale(block, pos, unsigned, s, b, dst, offset + dstPos, len);
+            }
+        });
+    }
+
+    /**
+     * Rescale all samples of a pixel buffer into an array.
+     *
+     * @see #rescale(PixelBuffer, double, double, float[], int)
+     */
+    public static void rescale(PixelBuffer src, double slope, double intercept, double[] dst, int offset)
+            throws IndexOutOfBoundsException {
+        int n = src.size();
+        if (offset < 0 || offset + n > dst.length) throw new IndexOutOfBoundsException();
+        read(src, 0, n, new BlockConsumer() {
+            @Override
+            public void accept(short[] block, int pos, boolean unsigned, int dstPos, int len) {
+                rescale(block, pos, unsigned, slope, intercept, dst, offset + dstPos, len);
+            }
+
+            @Override
+            public void accept(int[] block, int pos, boolean unsigned, int dstPos, int len) {
+                rescale(block, pos, unsigned, slope, intercept, dst, offset + dstPos, len);
+            }
+        });
+    }
+
+    /**
+     * Decode raw pixel data and rescale the samples in a single pass.
+     *
+     * @param buf                 raw pixel data
+     * @param offset              offset of the first sample in the raw pixel data
+     * @param length              number of bytes to decode
+     * @param bitsAllocated       bits allocated per sample (16 or 32)
+     * @param pixelRepresentation pixel representation of the samples
+     * @param order               byte order of the samples
+     * @param slope               rescale slope
+     * @param intercept           rescale intercept
+     * @return Rescaled pixel values
+     * @throws UnsupportedOperationException if the bits allocated are not 16 or 32
+     */
+    public static float[] decode(byte[] buf, int offset, int length, int bitsAllocated,
+                                 PixelRepresentation pixelRepresentation, ByteOrder order,
+                                 double slope, double intercept) throws UnsupportedOperationException {
+        var bytes = ByteBuffer.wrap(buf, offset, length).order(order);
+        return rescale(new ByteBufferPixelBuffer(bytes, bitsAllocated, pixelRepresentation), slope, intercept);
+    }
+
+    /**
+     * Add scaled samples to an array: {@code dst[offset + i] += src[index + i] * scale}.
+     *
+     * @param src    stored pixel values
+     * @param index  index of the first sample
+     * @param n      number of samples
+     * @param scale  scale factor applied to the samples
+     * @param dst    destination array
+     * @param offset offset in the destination array
+     * @throws IndexOutOfBoundsException if the range is outside of the source or destination
+     */
+    public static void accumulate(PixelBuffer src, int index, int n, double scale, double[] dst, int offset)
+            throws IndexOutOfBoundsException {
+        if (index < 0 || index + n > src.size() || offset < 0 || offset + n > dst.length)
+            throw new IndexOutOfBoundsException();
+        read(src, index, n, new BlockConsumer() {
+            @Override
+            public void accept(short[] block, int pos, boolean unsigned, int dstPos, int len) {
+                accumulate(block, pos, unsigned, scale, dst, offset + dstPos, len);
+            }
+
+            @Override
+            public void accept(int[] block, int pos, boolean unsigned, int dstPos, int len) {
+                accumulate(block, pos, unsigned, scale, dst, offset + dstPos, len);
+            }
+        });
+    }
+
+    /**
+     * Receives the stored samples of a pixel buffer in blocks of 16 or 32 bit values.
+     */
+    private interface BlockConsumer {
+        /**
+         * @param block    stored values
+         * @param pos      index of the first sample in the block
+         * @param unsigned true if the stored values are unsigned
+         * @param dstPos   index of the first sample relative to the first sample that was read
+         * @param len      number of samples
+         */
+        void accept(short[] block, int pos, boolean unsigned, int dstPos, int len);
+
+        /**
+         * @see #accept(short[], int, boolean, int, int)
+         */
+        void accept(int[] block, int pos, boolean unsigned, int dstPos, int len);
+    }
+
+    /**
+     * Pass the samples [index, index + n) of a pixel buffer to a consumer. Primitive arrays are passed as a whole,
+     * byte buffers are copied in blocks with a bulk get and other pixel buffers are copied into blocks sample by
+     * sample.
+     */
+    private static void read(PixelBuffer src, int index, int n, BlockConsumer consumer) {
+        if (src instanceof MappedPixelBuffer) src = ((MappedPixelBuffer) src).mapped();
+        boolean unsigned = src.getPixelRepresentation() == PixelRepresentation.UNSIGNED;
+        if (src instanceof ShortPixelBuffer) {
+            consumer.accept(((ShortPixelBuffer) src).array(), index, unsigned, 0, n);
+        } else if (src instanceof IntPixelBuffer) {
+            consumer.accept(((IntPixelBuffer) src).array(), index, unsigned, 0, n);
+        } else if (src instanceof ByteBufferPixelBuffer && src.getBitsAllocated() == 16) {
+            ShortBuffer buf = ((ByteBufferPixelBuffer) src).asShortBuffer();
+            buf.position(index);
+            short[] block = new short[Math.min(n, BLOCK_SIZE)];
+            for (int i = 0; i < n; i += block.length) {
+                int len = Math.min(block.length, n - i);
+                buf.get(block, 0, len);
+                consumer.accept(block, 0, unsigned, i, len);
+            }
+        } else if (src instanceof ByteBufferPixelBuffer) {
+            IntBuffer buf = ((ByteBufferPixelBuffer) src).asIntBuffer();
+            buf.position(index);
+            int[] block = new int[Math.min(n, BLOCK_SIZE)];
+            for (int i = 0; i < n; i += block.length) {
+                int len = Math.min(block.length, n - i);
+                buf.get(block, 0, len);
+                consumer.accept(block, 0, unsigned, i, len);
+            }
+        } else {
+            // Samples have at most 32 bits, unsigned values are restored by the consumer.
+            int[] block = new int[Math.min(n, BLOCK_SIZE)];
+            for (int i = 0; i < n; i += block.length) {
+                int len = Math.min(block.length, n - i);
+                for (int j = 0; j < len; j++) block[j] = (int) src.get(index + i + j);
+                consumer.accept(block, 0, unsigned, i, len);
+            }
+        }
+    }
+
+    private static void rescale(short[] src, int srcPos, boolean unsigned, float slope, float intercept,
+                                float[] dst, int dstPos, int n) {
+        if (unsigned) {
+            for (int i = 0; i < n; i++) dst[dstPos + i] = (src[srcPos + i] & 0xFFFF) * slope + intercept;
+        } else {
+            for (int i = 0; i < n; i++) dst[dstPos + i] = src[srcPos + i] * slope + intercept;
+        }
+    }
+
+    private static void rescale(int[] src, int srcPos, boolean unsigned, float slope, float intercept,
+                                float[] dst, int dstPos, int n) {
+        if (unsigned) {
+            for (int i = 0; i < n; i++) dst[dstPos + i] = (src[srcPos + i] & 0xFFFFFFFFL) * slope + intercept;
+        } else {
+            for (int i = 0; i < n; i++) dst[dstPos + i] = src[srcPos + i] * slope + intercept;
+        }
+    }
+
+    private static void rescale(short[] src, int srcPos, boolean unsigned, double slope, double intercept,
+                                double[] dst, int dstPos, int n) {
+        if (unsigned) {
+            for (int i = 0; i < n; i++) dst[dstPos + i] = (src[srcPos + i] & 0xFFFF) * slope + intercept;
+        } else {
+            for (int i = 0; i < n; i++) dst[dstPos + i] = src[srcPos + i] * slope + intercept;
+        }
+    }
+
+    private static void rescale(int[] src, int srcPos, boolean unsigned, double slope, double intercept,
+                                double[] dst, int dstPos, int n) {
+        if (unsigned) {
+            for (int i = 0; i < n; i++) dst[dstPos + i] = (src[srcPos + i] & 0xFFFFFFFFL) * slope + intercept;
+        } else {
+            for (int i = 0; i < n; i++) dst[dstPos + i] = src[srcPos + i] * slope + intercept;
+        }
+    }
+
+    private static void accumulate(short[] src, int srcPos, boolean unsigned, double scale,
+                                   double[] dst, int dstPos, int n) {
+        if (unsigned) {
+            for (int i = 0; i < n; i++) dst[dstPos + i] += (src[srcPos + i] & 0xFFFF) * scale;
+        } else {
+            for (int i = 0; i < n; i++) dst[dstPos + i] += src[srcPos + i] * scale;
+        }
+    }
+
+    private static void accumulate(int[] src, int srcPos, boolean unsigned, double scale,
+                                   double[] dst, int dstPos, int n) {
+        if (unsigned) {
+            for (int i = 0; i < n; i++) dst[dstPos + i] += (src[srcPos + i] & 0xFFFFFFFFL) * scale;
+        } else {
+            for (int i = 0; i < n; i++) dst[dstPos + i] += src[srcPos + i] * scale;
+        }
+    }
+}
@@ -69,14 +69,32 @@ public class RTDose //implements DicomImage<Long>
     private List<DvhItem> dvhSequence = new ArrayList<>();
     private List<ReferencedSOPClassInstanceItem> referencedRTPlanSequence = new ArrayList<>();
     private List<ReferencedSOPClassInstanceItem> referencedStructureSetSequence = new ArrayList<>();
-    private List<Long> pixelData = new ArrayList<>();
+    private PixelBuffer pixelBuffer = PixelBuffer.empty();
 
     public double getDose(int index) throws NullPointerException, IndexOutOfBoundsException {
-        if (pixelData == null) throw new NullPointerException("PixelData was not initialised.");
-        int n = pixelData.size();
+        if (pixelBuffer == null) throw new NullPointerException("PixelData was not initialised.");
+        int n = pixelBuffer.size();
         if (index >= n)
             throw new IndexOutOfBoundsException("Index [" + index + "] exceeds the pixeldata boundary [" + n + "]");
-        return doseGridScaling * (double) pixelData.get(index);
+        return doseGridScaling * (double) pixelBuffer.get(index);
+    }
+
+    /**
+     * Stored pixel values as a list view on the primitive pixel buffer.
+     *
+     * @return List view on the pixel buffer
+     */
+    public List<Long> getPixelData() {
+        return pixelBuffer.asList();
+    }
+
+    /**
+     * Copy the stored pixel values into a new pixel buffer based on the bits allocated and pixel representation.
+     *
+     * @param pixelData stored pixel values
+     */
+    public void setPixelData(List<Long> pixelData) {
+        pixelBuffer = PixelBuffer.of(pixelData, bitsAllocated, pixelRepresentation);
     }
 
 //    @Override
@@ -1,8 +1,11 @@
 package org.rt.rtkj.dicom;
 
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
@@ -46,8 +49,26 @@ public class RTStructureSet extends MetaHeader {
     private List<ROIContourItem> roiContourSequence = new ArrayList<>();
     private List<RTROIObservationsItem> rtROIObservationsSequence = new ArrayList<>();
     private String approvalStatus;
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    @Setter(AccessLevel.NONE)
+    private transient ContourIndex contourIndex;
 
     public RTStructureSet(MetaHeader meta) {
         super(meta);
     }
+
+    /**
+     * Spatial index over the contours. The index is built when the structure set is read, or on first use for
+     * structure sets created otherwise. Call {@link #rebuildContourIndex()} after modifying the contours.
+     */
+    public synchronized ContourIndex getContourIndex() {
+        if (contourIndex == null) contourIndex = ContourIndex.of(this);
+        return contourIndex;
+    }
+
+    public synchronized ContourIndex rebuildContourIndex() {
+        contourIndex = ContourIndex.of(this);
+        return contourIndex;
+    }
 }
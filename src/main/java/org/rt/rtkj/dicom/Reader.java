@@ -5,13 +5,11 @@ import org.dcm4che3.data.Attributes;
 import org.dcm4che3.data.Sequence;
 import org.dcm4che3.data.Tag;
 import org.dcm4che3.data.UID;
-import org.dcm4che3.util.ByteUtils;
-import org.rt.rtkj.utils.ByteTools;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.time.ZoneId;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -310,7 +308,8 @@ public class Reader {
         item.setContourGeometricType(attr.getString(Tag.ContourGeometricType, ""));
         item.setNumberOfContourPoints(attr.getInt(Tag.NumberOfContourPoints, DicomUtils.UNDEFINED_U32));
         item.setContourNumber(attr.getInt(Tag.ContourNumber, DicomUtils.UNDEFINED_U32));
-        item.setContourData(Arrays.stream(attr.getDoubles(Tag.ContourData)).boxed().collect(Collectors.toList()));
+        double[] contourData = attr.getDoubles(Tag.ContourData);
+        item.setContourData((contourData == null) ? new double[0] : contourData);
         return Optional.of(item);
     }
 
@@ -587,63 +586,38 @@ public class Reader {
     }
 
     /**
-     * @param buffer byte array
-     * @param offset offset to start reading data in the byte array
-     * @param length number of bytes to read
-     * @param bps    bytes per sample
-     * @param order  byteorder
-     * @return List with pixel values
+     * @param buffer              byte array
+     * @param offset              offset to start reading data in the byte array
+     * @param length              number of bytes to read
+     * @param bps                 bytes per sample
+     * @param pixelRepresentation pixel representation
+     * @param order               byteorder
+     * @param mode                copy the samples into an array or view the bytes in place
+     * @return Primitive buffer with pixel values
      */
-    private static List<Long> getPixelData(byte[] buffer, int offset, int length,
-                                           int bps, PixelRepresentation pixelRepresentation, ByteOrder order) throws UnsupportedOperationException {
-        List<Long> pixels;
+    private static PixelBuffer getPixelBuffer(byte[] buffer, int offset, int length,
+                                              int bps, PixelRepresentation pixelRepresentation, ByteOrder order,
+                                              PixelDataMode mode) throws UnsupportedOperationException {
         int end = offset + length;
-        if (buffer == null || end > buffer.length || order == null) return new ArrayList<>();
-        pixels = new ArrayList<>(length / bps + 1);
+        if (buffer == null || end > buffer.length || order == null) return PixelBuffer.empty();
+        var bb = ByteBuffer.wrap(buffer, offset, length).order(order);
         if (bps == 2) {
-            int i = offset;
-            switch (pixelRepresentation) {
-                case UNSIGNED:
-                    while (i < end) {
-                        int tv = ByteUtils.bytesToUShort(buffer, i, order == ByteOrder.BIG_ENDIAN);
-                        pixels.add((long) tv);
-                        i += bps;
-                    }
-                    ;
-                case TWO_COMPLEMENT:
-                    while (i < end) {
-                        int tv = ByteUtils.bytesToShort(buffer, i, order == ByteOrder.BIG_ENDIAN);
-                        pixels.add((long) tv);
-                        i += bps;
-                    }
-                    break;
-                default:
-                    throw new UnsupportedOperationException("Currently only 2 types of 16 bit pixels can be interpreted: unsigned and two complement");
-            }
+            if (pixelRepresentation != PixelRepresentation.UNSIGNED && pixelRepresentation != PixelRepresentation.TWO_COMPLEMENT)
+                throw new UnsupportedOperationException("Currently only 2 types of 16 bit pixels can be interpreted: unsigned and two complement");
+            if (mode == PixelDataMode.VIEW) return new ByteBufferPixelBuffer(bb, 16, pixelRepresentation);
+            short[] data = new short[length / bps];
+            bb.asShortBuffer().get(data);
+            return new ShortPixelBuffer(data, pixelRepresentation);
         } else if (bps == 4) {
-            int i = offset;
-            switch (pixelRepresentation) {
-                case TWO_COMPLEMENT:
-                    while (i < end) {
-                        int tv = ByteUtils.bytesToInt(buffer, i, order == ByteOrder.BIG_ENDIAN);
-                        pixels.add((long) tv);
-                        i += bps;
-                    }
-                    break;
-                case UNSIGNED:
-                    while (i < end) {
-                        long tv = ByteTools.bytesToUInt(buffer, i, order == ByteOrder.BIG_ENDIAN);
-                        pixels.add(tv);
-                        i += bps;
-                    }
-                    break;
-                default:
-                    throw new UnsupportedOperationException("Currently only 1 type of 32 bit pixels can be interpreted: two complement.");
-            }
+            if (pixelRepresentation != PixelRepresentation.UNSIGNED && pixelRepresentation != PixelRepresentation.TWO_COMPLEMENT)
+                throw new UnsupportedOperationException("Currently only 2 types of 32 bit pixels can be interpreted: unsigned and two complement");
+            if (mode == PixelDataMode.VIEW) return new ByteBufferPixelBuffer(bb, 32, pixelRepresentation);
+            int[] data = new int[length / bps];
+            bb.asIntBuffer().get(data);
+            return new IntPixelBuffer(data, pixelRepresentation);
         } else {
             throw new UnsupportedOperationException("Currently only 2 or 4 bytes per sample are supported.");
         }
-        return pixels;
     }
 
     private static Optional<MetaHeader> metaHeader(Attributes meta) throws IOException {
@@ -683,7 +657,26 @@ public class Reader {
         return Optional.of(item);
     }
 
+    public static Optional<DicomHeader> header(Attributes meta, Attributes attr) {
+        if (attr == null) return Optional.empty();
+        var hdr = new DicomHeader();
+        if (meta != null) hdr.setTransferSyntaxUID(meta.getString(Tag.TransferSyntaxUID, ""));
+        hdr.setSopClassUID(attr.getString(Tag.SOPClassUID, ""));
+        hdr.setSopInstanceUID(attr.getString(Tag.SOPInstanceUID, ""));
+        hdr.setModality(modality(attr));
+        hdr.setPatientID(attr.getString(Tag.PatientID, ""));
+        hdr.setStudyInstanceUID(attr.getString(Tag.StudyInstanceUID, ""));
+        hdr.setSeriesInstanceUID(attr.getString(Tag.SeriesInstanceUID, ""));
+        hdr.setFrameOfReferenceUID(attr.getString(Tag.FrameOfReferenceUID, ""));
+        hdr.setInstanceNumber(attr.getInt(Tag.InstanceNumber, DicomUtils.UNDEFINED_I32));
+        return Optional.of(hdr);
+    }
+
     public static Optional<CT> ct(Attributes meta, Attributes attr, ByteOrder order) throws IOException, DicomException {
+        return ct(meta, attr, order, PixelDataMode.COPY);
+    }
+
+    public static Optional<CT> ct(Attributes meta, Attributes attr, ByteOrder order, PixelDataMode mode) throws IOException, DicomException {
         if (attr == null) return Optional.empty();
         if (order != ByteOrder.LITTLE_ENDIAN)
             throw new DicomException("Only little endian DICOM files are currently supported.");
@@ -807,12 +800,12 @@ public class Reader {
         }
 
         byte[] buf = attr.getBytes(Tag.PixelData);
-        int nbuf = buf.length;
+        int nbuf = (buf == null) ? 0 : buf.length;
         int bps = ct.getBitsAllocated() / 8;
         if (ct.getBitsAllocated() != 16 || bps != 2) throw new DicomException("Only 16bit CT pixeldata is supported");
         var optPixelRepresentation = ct.getPixelRepresentation();
         if (optPixelRepresentation.isEmpty()) throw new DicomException("CT requires a valid pixel representation");
-        ct.setPixelData(getPixelData(buf, 0, nbuf, bps, optPixelRepresentation.get(), order));
+        ct.setPixelBuffer(getPixelBuffer(buf, 0, nbuf, bps, optPixelRepresentation.get(), order, mode));
 //        for (int i = 0; i < nbuf; i += bps) {
 //            int tv = ByteUtils.bytesToShort(buf, i, order == ByteOrder.BIG_ENDIAN);
 //            ct.getPixelData().add(tv);
@@ -821,6 +814,10 @@ public class Reader {
     }
 
     public static Optional<RTDose> rtDose(Attributes meta, Attributes attr, ByteOrder order) throws DicomException, IOException {
+        return rtDose(meta, attr, order, PixelDataMode.COPY);
+    }
+
+    public static Optional<RTDose> rtDose(Attributes meta, Attributes attr, ByteOrder order, PixelDataMode mode) throws DicomException, IOException {
         if (attr == null) return Optional.empty();
         RTDose rtdose = new RTDose();
         if (meta != null) {
@@ -918,11 +915,11 @@ public class Reader {
         }
 
         byte[] buf = attr.getBytes(Tag.PixelData);
-        int nbuf = buf.length;
+        int nbuf = (buf == null) ? 0 : buf.length;
         int bps = rtdose.getBitsAllocated() / 8;
         if ((rtdose.getBitsAllocated() != 16 || bps != 2) && (rtdose.getBitsAllocated() != 32 || bps != 4))
             throw new DicomException("Only 16 or 32 bit pixeldata is supported");
-        rtdose.setPixelData(getPixelData(buf, 0, nbuf, bps, rtdose.getPixelRepresentation(), order));
+        rtdose.setPixelBuffer(getPixelBuffer(buf, 0, nbuf, bps, rtdose.getPixelRepresentation(), order, mode));
 //        for (int i = 0; i < nbuf; i += bps) {
 //            int tv = ByteUtils.bytesToShort(buf, i, order == ByteOrder.BIG_ENDIAN);
 //            rtdose.getPixelData().add(tv);
@@ -940,6 +937,10 @@ public class Reader {
     }
 
     public static Optional<PT> pt(Attributes meta, Attributes attr, ByteOrder order) throws IOException, DicomException {
+        return pt(meta, attr, order, PixelDataMode.COPY);
+    }
+
+    public static Optional<PT> pt(Attributes meta, Attributes attr, ByteOrder order, PixelDataMode mode) throws IOException, DicomException {
         if (attr == null) return Optional.empty();
         var optMeta = metaHeader(meta);
         PT pt;
@@ -1109,13 +1110,13 @@ public class Reader {
         pt.setImageIndex(attr.getInt(Tag.ImageIndex, DicomUtils.UNDEFINED_U32));
 
         byte[] buf = attr.getBytes(Tag.PixelData);
-        int nbuf = buf.length;
+        int nbuf = (buf == null) ? 0 : buf.length;
         int bps = pt.getBitsAllocated() / 8;
         if ((pt.getBitsAllocated() != 16 || bps != 2) && (pt.getBitsAllocated() != 32 || bps != 4))
             throw new DicomException("Only 16 or 32 bit pixeldata is supported");
         var optPixelRepresentation = pt.getPixelRepresentation();
         if (optPixelRepresentation.isEmpty()) throw new DicomException("CT requires a valid pixel representation");
-        pt.setPixelData(getPixelData(buf, 0, nbuf, bps, optPixelRepresentation.get(), order));
+        pt.setPixelBuffer(getPixelBuffer(buf, 0, nbuf, bps, optPixelRepresentation.get(), order, mode));
 //        for (int i = 0; i < nbuf; i += bps) {
 //            var bb = ByteBuffer.wrap(buf, i, bps);
 //            pt.getPixelData().add(bb.getInt());
@@ -1271,6 +1272,7 @@ public class Reader {
             }
         }
         ss.setApprovalStatus(attr.getString(Tag.ApprovalStatus, ""));
+        ss.rebuildContourIndex();
         return Optional.of(ss);
     }
 }
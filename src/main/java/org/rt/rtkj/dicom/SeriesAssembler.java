@@ -0,0 +1,310 @@
+package org.rt.rtkj.dicom;
+
+import io.reactivex.rxjava3.core.BackpressureStrategy;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.FlowableEmitter;
+import io.reactivex.rxjava3.disposables.Disposable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import lombok.extern.log4j.Log4j2;
+import org.rt.rtkj.utils.Geometry;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Groups CT slices per series while they arrive and emits each series as soon as it is complete, so processing of
+ * a series can start while other files are still being read.
+ * <p>
+ * A series with an expected number of slices is emitted when that number of slices arrived and the slices are
+ * equidistant along the slice normal. Any series is emitted when no slice of it arrived within the timeout, or
+ * when the assembler is flushed or closed, with {@link AssembledSeries#isComplete()} indicating whether slices are
+ * missing. Slices of a series that was already emitted are dropped.
+ * <p>
+ * Slices can be added from multiple threads. Series are passed to the consumer one at a time and outside of the
+ * lock of the assembler, on the thread adding the last slice or on the computation scheduler after a timeout. If
+ * another thread is already passing series to the consumer, that thread also delivers the new series and the
+ * calling thread returns immediately, so a slow consumer doesn't block other threads adding slices. The UIDs of the
+ * last {@link #EMITTED_CAPACITY} emitted series are remembered to drop late slices.
+ */
+@Log4j2
+public class SeriesAssembler implements AutoCloseable {
+
+    /**
+     * Tolerance [mm] on the distance between consecutive slices.
+     */
+    public static final double SPACING_TOLERANCE = 1e-2;
+
+    /**
+     * Number of emitted series whose UIDs are remembered to drop late slices.
+     */
+    public static final int EMITTED_CAPACITY = 1024;
+
+    private static class Pending {
+        final CT3d ct = new CT3d();
+        final AssembledSeries result = new AssembledSeries();
+        Disposable timer;
+        long generation = 0; // number of slices added, identifies the current timer
+    }
+
+    private final Consumer<AssembledSeries> consumer;
+    private final long timeout;
+    private final TimeUnit unit;
+    private final Map<String, Integer> expected = new HashMap<>();
+    private final Map<String, Pending> pending = new HashMap<>();
+    // most recently emitted series, the eldest is evicted beyond EMITTED_CAPACITY
+    private final Set<String> emitted = Collections.newSetFromMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > EMITTED_CAPACITY;
+        }
+    });
+    // deliveries waiting to run, guarded by this
+    private final Queue<Runnable> ready = new ArrayDeque<>();
+    // number of deliver calls since the queue was last drained, only the thread that raises it from 0 drains
+    private final AtomicInteger wip = new AtomicInteger();
+    private boolean closed = false;
+
+    /**
+     * @param consumer receives the assembled series
+     * @param timeout  time without new slices after which an incomplete series is emitted, 0 to wait until the
+     *                 assembler is flushed
+     * @param unit     unit of the timeout
+     */
+    public SeriesAssembler(Consumer<AssembledSeries> consumer, long timeout, TimeUnit unit) {
+        this.consumer = consumer;
+        this.timeout = timeout;
+        this.unit = unit;
+    }
+
+    /**
+     * Set the number of slices expected in a series.
+     */
+    public SeriesAssembler expect(String seriesInstanceUID, int slices) {
+        synchronized (this) {
+            if (emitted.contains(seriesInstanceUID)) return this;
+            expected.put(seriesInstanceUID, slices);
+            Pending p = pending.get(seriesInstanceUID);
+            if (p != null) {
+                p.result.setExpectedSlices(slices);
+                if (ready(p)) emit(seriesInstanceUID, false);
+            }
+        }
+        deliver();
+        return this;
+    }
+
+    /**
+     * Add the CT slice of a DICOM object, other objects are ignored.
+     */
+    public void add(DicomObject dicomObject) {
+        if (dicomObject != null && dicomObject.hasCT()) add(dicomObject.getCt().get());
+    }
+
+    public void add(CT slice) {
+        if (slice == null) return;
+        synchronized (this) {
+            addSlice(slice);
+        }
+        deliver();
+    }
+
+    private void addSlice(CT slice) {
+        if (closed) {
+            log.error("Unable to add a slice to a closed series assembler");
+            return;
+        }
+        String uid = (slice.getSeriesInstanceUID() == null) ? "" : slice.getSeriesInstanceUID();
+        if (emitted.contains(uid)) {
+            log.error(String.format("Slice %s arrived after series %s was emitted", slice.getSOPInstanceUID(), uid));
+            return;
+        }
+        Pending p = pending.computeIfAbsent(uid, key -> {
+            Pending tmp = new Pending();
+            tmp.result.setSeriesInstanceUID(key);
+            tmp.result.setCt(tmp.ct);
+            tmp.result.setExpectedSlices(expected.getOrDefault(key, -1));
+            return tmp;
+        });
+        if (!p.ct.add(slice)) {
+            String msg = String.format("Slice %s doesn't match the other slices of series %s",
+                    slice.getSOPInstanceUID(), uid);
+            log.error(msg);
+            p.result.addError(msg);
+        }
+        if (ready(p)) {
+            emit(uid, false);
+            return;
+        }
+        if (timeout > 0) {
+            if (p.timer != null) p.timer.dispose();
+            long generation = ++p.generation;
+            p.timer = Schedulers.computation().scheduleDirect(() -> expire(uid, p, generation), timeout, unit);
+        }
+    }
+
+    /**
+     * Emit all pending series.
+     */
+    public void flush() {
+        synchronized (this) {
+            for (String uid : pending.keySet().toArray(new String[0])) emit(uid, false);
+        }
+        deliver();
+    }
+
+    /**
+     * Emit all pending series and stop accepting slices.
+     */
+    @Override
+    public void close() {
+        close(null);
+    }
+
+    /**
+     * Emit all pending series, stop accepting slices and run an action after the last series was delivered.
+     */
+    private void close(Runnable then) {
+        synchronized (this) {
+            for (String uid : pending.keySet().toArray(new String[0])) emit(uid, false);
+            closed = true;
+            if (then != null) ready.add(then);
+        }
+        deliver();
+    }
+
+    /**
+     * Stop accepting slices and drop the pending series.
+     */
+    public synchronized void cancel() {
+        pending.values().forEach(p -> {
+            if (p.timer != null) p.timer.dispose();
+        });
+        pending.clear();
+        ready.clear();
+        closed = true;
+    }
+
+    /**
+     * @return Number of series waiting for slices
+     */
+    public synchronized int pendingSize() {
+        return pending.size();
+    }
+
+    private void expire(String uid, Pending p, long generation) {
+        synchronized (this) {
+            // the series was already emitted or received a slice after this timer was scheduled
+            if (closed || pending.get(uid) != p || p.generation != generation) return;
+            emit(uid, true);
+        }
+        deliver();
+    }
+
+    /**
+     * Pass the ready series to the consumer. Returns immediately if another thread is delivering, that thread then
+     * also delivers the series queued by this call.
+     */
+    private void deliver() {
+        if (wip.getAndIncrement() != 0) return;
+        int missed = 1;
+        do {
+            while (true) {
+                Runnable next;
+                synchronized (this) {
+                    next = ready.poll();
+                }
+                if (next == null) break;
+                try {
+                    next.run();
+                } catch (RuntimeException e) {
+                    log.error(String.format("Unable to deliver an assembled series: %s", e.getMessage()));
+                }
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private boolean ready(Pending p) {
+        int n = p.result.getExpectedSlices();
+        return n > 0 && p.ct.size() >= n && equidistant(p.ct);
+    }
+
+    private void emit(String uid, boolean timedOut) {
+        Pending p = pending.remove(uid);
+        if (p == null) return;
+        if (p.timer != null) p.timer.dispose();
+        emitted.add(uid);
+        expected.remove(uid);
+        AssembledSeries result = p.result;
+        int n = result.getExpectedSlices();
+        boolean equidistant = equidistant(p.ct);
+        if (!equidistant) result.addError("Slices are missing or not equidistant along the slice normal");
+        if (n > 0 && p.ct.size() < n)
+            result.addError(String.format("Expected %d slices, received %d", n, p.ct.size()));
+        result.setComplete(equidistant && (n <= 0 || p.ct.size() >= n));
+        result.setTimedOut(timedOut);
+        ready.add(() -> consumer.accept(result));
+    }
+
+    /**
+     * Check if the slices of a series are at distinct, equidistant positions along the slice normal.
+     */
+    static boolean equidistant(CT3d ct) {
+        int n = ct.size();
+        if (n == 0) return false;
+        double[] iop = ct.get(0).get().getImageOrientationPatient();
+        if (iop == null || iop.length != 6) return false;
+        double[] normal = Geometry.sliceNormal(iop);
+        double[] positions = new double[n];
+        for (int i = 0; i < n; i++) {
+            double[] ipp = ct.get(i).get().getImagePositionPatient();
+            if (ipp == null || ipp.length != 3) return false;
+            positions[i] = Geometry.dot(ipp, normal);
+        }
+        if (n == 1) return true;
+        Arrays.sort(positions);
+        double spacing = positions[1] - positions[0];
+        if (spacing <= SPACING_TOLERANCE) return false;
+        for (int i = 2; i < n; i++) {
+            if (Math.abs(positions[i] - positions[i - 1] - spacing) > SPACING_TOLERANCE) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Assemble the CT series in a stream of DICOM objects, e.g. from {@link ObservableDicomFactory#read}. Series are
+     * emitted as soon as they are complete or timed out, the remaining series when the source completes.
+     *
+     * @param objects  DICOM objects
+     * @param expected expected number of slices per SeriesInstanceUID
+     * @param timeout  time without new slices after which an incomplete series is emitted, 0 to wait for the end of
+     *                 the source
+     * @param unit     unit of the timeout
+     * @return Assembled series
+     */
+    public static Flowable<AssembledSeries> assemble(Flowable<DicomObject> objects, Map<String, Integer> expected,
+                                                     long timeout, TimeUnit unit) {
+        return Flowable.create(emitter -> {
+            FlowableEmitter<AssembledSeries> serialized = emitter.serialize();
+            SeriesAssembler assembler = new SeriesAssembler(serialized::onNext, timeout, unit);
+            if (expected != null) expected.forEach(assembler::expect);
+            // the terminal event is queued behind the remaining series, another thread may still be delivering
+            Disposable subscription = objects.subscribe(assembler::add,
+                    e -> assembler.close(() -> serialized.onError(e)),
+                    () -> assembler.close(serialized::onComplete));
+            emitter.setCancellable(() -> {
+                subscription.dispose();
+                assembler.cancel();
+            });
+        }, BackpressureStrategy.BUFFER);
+    }
+}
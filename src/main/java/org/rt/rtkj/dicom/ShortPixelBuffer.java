@@ -0,0 +1,58 @@
+package org.rt.rtkj.dicom;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Pixel buffer for 16 bit samples. Unsigned samples are stored as their bit pattern in a short.
+ */
+@EqualsAndHashCode
+public class ShortPixelBuffer implements PixelBuffer {
+    private final short[] data;
+    @Getter
+    private final PixelRepresentation pixelRepresentation;
+
+    public ShortPixelBuffer(int size, PixelRepresentation pixelRepresentation) {
+        this(new short[size], pixelRepresentation);
+    }
+
+    public ShortPixelBuffer(short[] data, PixelRepresentation pixelRepresentation) {
+        this.data = data;
+        this.pixelRepresentation = (pixelRepresentation == null) ? PixelRepresentation.NONE : pixelRepresentation;
+    }
+
+    @Override
+    public int size() {
+        return data.length;
+    }
+
+    @Override
+    public long get(int index) throws IndexOutOfBoundsException {
+        if (pixelRepresentation == PixelRepresentation.UNSIGNED) return data[index] & 0xFFFF;
+        return data[index];
+    }
+
+    @Override
+    public void set(int index, long value) throws IndexOutOfBoundsException {
+        data[index] = (short) value;
+    }
+
+    @Override
+    public int getBitsAllocated() {
+        return 16;
+    }
+
+    /**
+     * Backing array of the buffer, changes to the array are visible in the buffer.
+     *
+     * @return backing array
+     */
+    public short[] array() {
+        return data;
+    }
+
+    @Override
+    public String toString() {
+        return "ShortPixelBuffer(size=" + data.length + ", pixelRepresentation=" + pixelRepresentation + ")";
+    }
+}
@@ -1,5 +1,7 @@
 package org.rt.rtkj.dicom;
 
+import org.dcm4che3.util.UIDUtils;
+
 import java.util.concurrent.ThreadLocalRandom;
 
 public class UIDGenerator {
@@ -11,4 +13,11 @@ public class UIDGenerator {
     public static String studyInstance() {
         return orgRoot() + "5.97.2.6972." + DicomUtils.getLocalDateTimeNow() + ThreadLocalRandom.current().nextInt(0, 100);
     }
+
+    /**
+     * Create a new SOP instance UID. The UID is derived from a random UUID, so UIDs created concurrently don't collide.
+     */
+    public static String sopInstance() {
+        return UIDUtils.createUID();
+    }
 }
@@ -4,7 +4,9 @@ import lombok.extern.log4j.Log4j2;
 import org.dcm4che3.data.Attributes;
 import org.dcm4che3.data.ElementDictionary;
 import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.UID;
 import org.dcm4che3.data.VR;
+import org.dcm4che3.io.DicomOutputStream;
 
 import javax.imageio.ImageIO;
 import javax.imageio.ImageTypeSpecifier;
@@ -13,10 +15,13 @@ import javax.imageio.stream.FileImageOutputStream;
 import javax.imageio.stream.ImageOutputStream;
 import java.awt.image.BufferedImage;
 import java.awt.image.WritableRaster;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
@@ -26,6 +31,11 @@ import static java.awt.image.DataBuffer.TYPE_USHORT;
 
 @Log4j2
 public class Writer {
+    /**
+     * Size [bytes] of the chunks in which the pixel data is streamed.
+     */
+    public static final int PIXEL_DATA_CHUNK_SIZE = 1 << 16;
+
     public static void writeGrayTiff(CT ct, String filename) throws IOException {
         log.info("filename: " + filename);
         int nr = ct.getRows();
@@ -75,7 +85,120 @@ public class Writer {
         writer.write(bi);
     }
 
+    /**
+     * Create a DICOM dataset from an RTDose, including the pixel data.
+     *
+     * @param dose RTDose
+     * @return Dataset if the RTDose is valid.
+     * @see #rtdose(RTDose, Attributes, DicomOutputStream) to write large dose grids without a copy of the pixel data
+     */
     public static Optional<Attributes> rtdose(RTDose dose) {
+        var optRoot = rtdoseHeader(dose);
+        if (optRoot.isEmpty()) return Optional.empty();
+        var root = optRoot.get();
+        var pixels = dose.getPixelBuffer();
+        int bs = dose.getBitsAllocated() / 8;
+        byte[] pixelData = new byte[pixels.size() * bs];
+        encode(pixels, 0, pixels.size(), ByteBuffer.wrap(pixelData).order(ByteOrder.LITTLE_ENDIAN));
+        root.setBytes(Tag.PixelData, VR.OW, pixelData);
+        return Optional.of(root);
+    }
+
+    /**
+     * Write an RTDose to a DICOM output stream. The dose values are encoded in chunks directly from the pixel
+     * buffer of the RTDose, no copy of the complete pixel data is created.
+     *
+     * @param dose RTDose
+     * @param fmi  file meta information (can be null)
+     * @param dos  DICOM output stream with an explicit VR little endian transfer syntax
+     * @return False if the RTDose is invalid, nothing is written in that case.
+     * @throws IOException if writing to the stream fails
+     */
+    public static boolean rtdose(RTDose dose, Attributes fmi, DicomOutputStream dos) throws IOException {
+        var optRoot = rtdoseHeader(dose);
+        if (optRoot.isEmpty()) return false;
+        rtdose(dose, optRoot.get(), fmi, dos);
+        return true;
+    }
+
+    /**
+     * Write an RTDose to a DICOM output stream using a dataset created by {@link #rtdoseHeader(RTDose)}, so the
+     * header can be built and validated separately from the IO. The dose values are encoded in chunks directly from
+     * the pixel buffer of the RTDose.
+     *
+     * @param dose   RTDose
+     * @param header dataset of the RTDose without the pixel data
+     * @param fmi    file meta information (can be null)
+     * @param dos    DICOM output stream with an explicit VR little endian transfer syntax
+     * @throws IOException if writing to the stream fails
+     */
+    public static void rtdose(RTDose dose, Attributes header, Attributes fmi, DicomOutputStream dos)
+            throws IOException {
+        var pixels = dose.getPixelBuffer();
+        int bs = dose.getBitsAllocated() / 8;
+        int n = pixels.size();
+        // Only 16 and 32 bit samples are accepted, so the pixel data never needs padding to an even length.
+        dos.writeDataset(fmi, header);
+        dos.writeHeader(Tag.PixelData, VR.OW, n * bs);
+
+        int samplesPerChunk = PIXEL_DATA_CHUNK_SIZE / bs;
+        ByteBuffer chunk = ByteBuffer.allocate(PIXEL_DATA_CHUNK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < n; i += samplesPerChunk) {
+            int len = Math.min(samplesPerChunk, n - i);
+            chunk.clear();
+            encode(pixels, i, len, chunk);
+            dos.write(chunk.array(), 0, chunk.position());
+        }
+    }
+
+    /**
+     * Write an RTDose without file meta information to a file channel, starting at the current position of the
+     * channel. The channel is not closed.
+     *
+     * @param dose    RTDose
+     * @param channel writable file channel
+     * @return False if the RTDose is invalid, nothing is written in that case.
+     * @throws IOException if writing to the channel fails
+     * @see #rtdose(RTDose, Attributes, DicomOutputStream)
+     */
+    public static boolean rtdose(RTDose dose, FileChannel channel) throws IOException {
+        var out = new BufferedOutputStream(Channels.newOutputStream(channel), PIXEL_DATA_CHUNK_SIZE);
+        var dos = new DicomOutputStream(out, UID.ExplicitVRLittleEndian);
+        boolean written = rtdose(dose, null, dos);
+        dos.flush();
+        return written;
+    }
+
+    /**
+     * Encode consecutive samples of a pixel buffer into a byte buffer. The samples are copied with bulk puts when the
+     * pixel buffer is backed by a primitive array.
+     *
+     * @param src   pixel buffer
+     * @param index index of the first sample
+     * @param n     number of samples
+     * @param dst   little endian byte buffer, the samples are written at its position
+     */
+    private static void encode(PixelBuffer src, int index, int n, ByteBuffer dst) {
+        if (src instanceof ShortPixelBuffer) {
+            dst.asShortBuffer().put(((ShortPixelBuffer) src).array(), index, n);
+            dst.position(dst.position() + 2 * n);
+        } else if (src instanceof IntPixelBuffer) {
+            dst.asIntBuffer().put(((IntPixelBuffer) src).array(), index, n);
+            dst.position(dst.position() + 4 * n);
+        } else if (src.getBitsAllocated() == 16) {
+            for (int i = 0; i < n; i++) dst.putShort((short) src.get(index + i));
+        } else {
+            for (int i = 0; i < n; i++) dst.putInt((int) src.get(index + i));
+        }
+    }
+
+    /**
+     * Create the DICOM dataset of an RTDose without the pixel data and validate the pixel data attributes.
+     *
+     * @param dose RTDose
+     * @return Dataset without the pixel data if the RTDose is valid.
+     */
+    public static Optional<Attributes> rtdoseHeader(RTDose dose) {
         var dict = ElementDictionary.getStandardElementDictionary();
         if (dose.getModality() != Modality.RTDOSE) {
             log.error("RTDose instance has an invalid modality: " + dose.getModality().toString());
@@ -176,42 +299,16 @@ public class Writer {
             log.error("Supported pixel representation for RTDOSE pixel data is unsigned integer values. Not the two's complement integer representation.");
             return Optional.empty();
         }
-
-        // Check if the byteorder of the system is Little endian. If not, the following code will be incorrect.
-        // The byte buffer is written for little endian DICOM streams. Big endian DICOM streams are no long supported
-        // by the DICOM standard.
-        if (ByteOrder.nativeOrder() != ByteOrder.LITTLE_ENDIAN) {
-            log.error("The code that write the bytebuffer for the pixel data is written for little endian DICOM streams and assumes that the system is also little endian.");
+        long npixels = (long) dose.getNumberOfFrames() * dose.getRows() * dose.getColumns();
+        if (dose.getPixelBuffer().size() != npixels) {
+            log.error(String.format("Number of dose values [%d] doesn't match the number of frames, rows and columns [%d]",
+                    dose.getPixelBuffer().size(), npixels));
             return Optional.empty();
         }
-
-        ByteBuffer pb = null;
-        int bs = dose.getBitsAllocated();
-        int npixels = dose.getNumberOfFrames() * dose.getRows() * dose.getColumns();
-        if (bs == 16) pb = ByteBuffer.allocate(npixels * 2);
-        if (bs == 32) pb = ByteBuffer.allocate(npixels * 4);
-
-        assert pb != null;
-        pb.order(ByteOrder.LITTLE_ENDIAN);
-        int k = 0;
-        for (int i = 0; i < npixels; i++) {
-            var val = dose.getPixelData().get(i);
-            if (bs == 16) {
-                pb.put(k++, (byte) ((val) & 0xFF));
-                pb.put(k++, (byte) ((val >> 8) & 0xFF));
-            } else {
-                pb.put(k++, (byte) ((val) & 0xFF));
-                pb.put(k++, (byte) ((val >> 8) & 0xFF));
-                pb.put(k++, (byte) ((val >> 16) & 0xFF));
-                pb.put(k++, (byte) ((val >> 24) & 0xFF));
-            }
-        }
-        if (k != pb.capacity()) {
-            log.error(String.format("Index in the byte buffer after filling the buffer should be equal to it's " +
-                    "capacity. No remaining bytes should be left. Capacity: %d", pb.capacity()));
+        if (npixels * (dose.getBitsAllocated() / 8) > Integer.MAX_VALUE - 1) {
+            log.error("Dose grid is too large to be stored in a single pixel data element");
             return Optional.empty();
         }
-        root.setBytes(Tag.PixelData, VR.OW, pb.array());
 
         return Optional.of(root);
     }
@@ -0,0 +1,160 @@
+package org.rt.rtkj.model;
+
+import lombok.Getter;
+
+/**
+ * Dense ROI mask with one bit per voxel.
+ */
+@Getter
+public class BitMask implements RoiMask {
+    private final int columns;
+    private final int rows;
+    private final int slices;
+    private final long[] words;
+
+    public BitMask(int columns, int rows, int slices) {
+        if (columns < 0 || rows < 0 || slices < 0) throw new IllegalArgumentException("Negative mask dimensions");
+        this.columns = columns;
+        this.rows = rows;
+        this.slices = slices;
+        long n = (size() + 63) >>> 6;
+        if (n > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("Mask is too large: " + size() + " voxels");
+        this.words = new long[(int) n];
+    }
+
+    static class Builder implements RoiMask.Builder {
+        private final BitMask mask;
+
+        Builder(int columns, int rows, int slices) {
+            mask = new BitMask(columns, rows, slices);
+        }
+
+        @Override
+        public Builder add(int slice, int row, int firstColumn, int lastColumn) {
+            mask.set(slice, row, firstColumn, lastColumn);
+            return this;
+        }
+
+        @Override
+        public BitMask build() {
+            return mask;
+        }
+    }
+
+    private long index(int column, int row, int slice) {
+        return ((long) slice * rows + row) * columns + column;
+    }
+
+    @Override
+    public boolean get(int column, int row, int slice) {
+        long i = index(column, row, slice);
+        return (words[(int) (i >>> 6)] & (1L << i)) != 0;
+    }
+
+    public void set(int column, int row, int slice, boolean value) {
+        long i = index(column, row, slice);
+        if (value) words[(int) (i >>> 6)] |= 1L << i;
+        else words[(int) (i >>> 6)] &= ~(1L << i);
+    }
+
+    /**
+     * Set a run of voxels in a row.
+     */
+    public void set(int slice, int row, int firstColumn, int lastColumn) {
+        if (firstColumn > lastColumn) return;
+        long from = index(firstColumn, row, slice);
+        long to = index(lastColumn, row, slice) + 1;
+        int w0 = (int) (from >>> 6);
+        int w1 = (int) ((to - 1) >>> 6);
+        long first = -1L << from;
+        long last = -1L >>> -to;
+        if (w0 == w1) {
+            words[w0] |= first & last;
+            return;
+        }
+        words[w0] |= first;
+        for (int w = w0 + 1; w < w1; w++) words[w] = -1L;
+        words[w1] |= last;
+    }
+
+    @Override
+    public long count() {
+        long count = 0;
+        for (long word : words) count += Long.bitCount(word);
+        return count;
+    }
+
+    @Override
+    public void forEachRun(RunConsumer consumer) {
+        long size = size();
+        long start = nextSetBit(0);
+        while (start >= 0 && start < size) {
+            long end = Math.min(nextClearBit(start), size);
+            // split the run at row boundaries
+            while (start < end) {
+                long line = start / columns;
+                long rowEnd = Math.min((line + 1) * columns, end);
+                consumer.accept((int) (line / rows), (int) (line % rows), (int) (start - line * columns),
+                        (int) (rowEnd - 1 - line * columns));
+                start = rowEnd;
+            }
+            start = nextSetBit(end);
+        }
+    }
+
+    private long nextSetBit(long from) {
+        int w = (int) (from >>> 6);
+        if (w >= words.length) return -1;
+        long word = words[w] & (-1L << from);
+        while (word == 0) {
+            if (++w == words.length) return -1;
+            word = words[w];
+        }
+        return ((long) w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    private long nextClearBit(long from) {
+        int w = (int) (from >>> 6);
+        if (w >= words.length) return from;
+        long word = ~words[w] & (-1L << from);
+        while (word == 0) {
+            if (++w == words.length) return (long) words.length << 6;
+            word = ~words[w];
+        }
+        return ((long) w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    private BitMask bits(RoiMask other) {
+        RoiMask.checkDimensions(this, other);
+        return (BitMask) other.to(MaskStorage.BIT_PACKED);
+    }
+
+    @Override
+    public BitMask union(RoiMask other) {
+        long[] b = bits(other).words;
+        BitMask result = new BitMask(columns, rows, slices);
+        for (int i = 0; i < words.length; i++) result.words[i] = words[i] | b[i];
+        return result;
+    }
+
+    @Override
+    public BitMask intersection(RoiMask other) {
+        long[] b = bits(other).words;
+        BitMask result = new BitMask(columns, rows, slices);
+        for (int i = 0; i < words.length; i++) result.words[i] = words[i] & b[i];
+        return result;
+    }
+
+    @Override
+    public BitMask subtract(RoiMask other) {
+        long[] b = bits(other).words;
+        BitMask result = new BitMask(columns, rows, slices);
+        for (int i = 0; i < words.length; i++) result.words[i] = words[i] & ~b[i];
+        return result;
+    }
+
+    @Override
+    public MaskStorage getStorage() {
+        return MaskStorage.BIT_PACKED;
+    }
+}
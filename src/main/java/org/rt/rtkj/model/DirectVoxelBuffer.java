@@ -0,0 +1,160 @@
+package org.rt.rtkj.model;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Voxel values stored in direct buffers outside of the Java heap. A single direct buffer is limited to 2^31 bytes,
+ * the voxels are therefore split over chunks of a fixed power of two size.
+ * <p>
+ * The memory is freed when the buffer is closed. The buffer must not be accessed concurrently with or after
+ * {@link #close()}.
+ */
+@Log4j2
+public class DirectVoxelBuffer implements VoxelBuffer {
+    /**
+     * Default number of voxels per chunk as a power of two (2^27 voxels or 512 MiB).
+     */
+    public static final int DEFAULT_CHUNK_SHIFT = 27;
+
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> cls = Class.forName("sun.misc.Unsafe");
+            Field field = cls.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = cls.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("Direct buffers can't be released explicitly, memory is freed by the garbage collector");
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final long size;
+    private final int chunkShift;
+    private final int chunkMask;
+    private ByteBuffer[] chunks;
+    private volatile FloatBuffer[] buffers;
+
+    public DirectVoxelBuffer(long size) {
+        this(size, DEFAULT_CHUNK_SHIFT);
+    }
+
+    DirectVoxelBuffer(long size, int chunkShift) {
+        if (size < 0) throw new IllegalArgumentException("Buffer size can't be negative");
+        if (chunkShift < 1 || chunkShift > 28) throw new IllegalArgumentException("Invalid chunk size");
+        this.size = size;
+        this.chunkShift = chunkShift;
+        this.chunkMask = (1 << chunkShift) - 1;
+        int chunkSize = 1 << chunkShift;
+        int n = (int) ((size + chunkSize - 1) >>> chunkShift);
+        chunks = new ByteBuffer[n];
+        FloatBuffer[] views = new FloatBuffer[n];
+        for (int i = 0; i < n; i++) {
+            int len = (int) Math.min(chunkSize, size - ((long) i << chunkShift));
+            chunks[i] = ByteBuffer.allocateDirect(len * Float.BYTES).order(ByteOrder.nativeOrder());
+            views[i] = chunks[i].asFloatBuffer();
+        }
+        buffers = views;
+    }
+
+    private FloatBuffer[] buffers() {
+        FloatBuffer[] b = buffers;
+        if (b == null) throw new IllegalStateException("Voxel buffer has been released");
+        return b;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public float get(long index) {
+        return buffers()[(int) (index >>> chunkShift)].get((int) index & chunkMask);
+    }
+
+    @Override
+    public void set(long index, float value) {
+        buffers()[(int) (index >>> chunkShift)].put((int) index & chunkMask, value);
+    }
+
+    @Override
+    public void get(long index, float[] dst, int offset, int length) {
+        if (index < 0 || index + length > size) throw new IndexOutOfBoundsException();
+        FloatBuffer[] b = buffers();
+        while (length > 0) {
+            FloatBuffer chunk = b[(int) (index >>> chunkShift)].duplicate();
+            int pos = (int) index & chunkMask;
+            int n = Math.min(length, chunk.capacity() - pos);
+            chunk.position(pos);
+            chunk.get(dst, offset, n);
+            index += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    @Override
+    public void put(long index, float[] src, int offset, int length) {
+        if (index < 0 || index + length > size) throw new IndexOutOfBoundsException();
+        FloatBuffer[] b = buffers();
+        while (length > 0) {
+            FloatBuffer chunk = b[(int) (index >>> chunkShift)].duplicate();
+            int pos = (int) index & chunkMask;
+            int n = Math.min(length, chunk.capacity() - pos);
+            chunk.position(pos);
+            chunk.put(src, offset, n);
+            index += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    @Override
+    public void fill(float value) {
+        float[] tmp = new float[(int) Math.min(size, 1 << 16)];
+        Arrays.fill(tmp, value);
+        for (long i = 0; i < size; i += tmp.length) {
+            put(i, tmp, 0, (int) Math.min(tmp.length, size - i));
+        }
+    }
+
+    @Override
+    public boolean isDirect() {
+        return true;
+    }
+
+    public boolean isReleased() {
+        return buffers == null;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (buffers == null) return;
+        buffers = null;
+        ByteBuffer[] tmp = chunks;
+        chunks = null;
+        if (INVOKE_CLEANER == null) return;
+        for (ByteBuffer chunk : tmp) {
+            try {
+                INVOKE_CLEANER.invoke(UNSAFE, chunk);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                log.error("Unable to release direct buffer: " + e.getMessage());
+                return;
+            }
+        }
+    }
+}
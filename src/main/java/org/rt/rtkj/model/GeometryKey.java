@@ -0,0 +1,68 @@
+package org.rt.rtkj.model;
+
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.rt.rtkj.dicom.Modality;
+import org.rt.rtkj.dicom.PatientPosition;
+import org.rt.rtkj.dicom.PixelRepresentation;
+
+import java.util.Optional;
+
+/**
+ * Hash key of the attributes that slices of the same 3D image share: frame of reference, modality, study, patient
+ * position, pixel spacing, image orientation, pixel representation and bits allocated.
+ * <p>
+ * Spacing and orientation are compared exactly, with -0.0 normalized to 0.0.
+ */
+@EqualsAndHashCode
+@ToString
+final class GeometryKey {
+    private final String frameOfReferenceUID;
+    private final Modality modality;
+    private final String studyInstanceUID;
+    private final PatientPosition patientPosition;
+    private final double[] pixelSpacing;
+    private final double[] imageOrientationPatient;
+    private final PixelRepresentation pixelRepresentation;
+    private final int bitsAllocated;
+
+    private GeometryKey(Image2D slice) {
+        frameOfReferenceUID = slice.getFrameOfReferenceUID();
+        modality = slice.getModality();
+        studyInstanceUID = slice.getStudyInstanceUID();
+        patientPosition = slice.getPatientPosition();
+        pixelSpacing = normalize(slice.getPixelSpacing());
+        imageOrientationPatient = normalize(slice.getImageOrientationPatient());
+        pixelRepresentation = slice.getPixelRepresentation();
+        bitsAllocated = slice.getBitsAllocated();
+    }
+
+    /**
+     * Key of a slice that can be grouped with other slices into a 3D image.
+     *
+     * @return Key, or empty if the slice can't be grouped (unsupported modality, missing or invalid pixel spacing
+     * or image orientation).
+     */
+    static Optional<GeometryKey> of(Image2D slice) {
+        if (slice == null) return Optional.empty();
+        Modality modality = slice.getModality();
+        if (modality != Modality.CT && modality != Modality.PT && modality != Modality.MR) return Optional.empty();
+        if (!valid(slice.getPixelSpacing(), 2) || !valid(slice.getImageOrientationPatient(), 6))
+            return Optional.empty();
+        return Optional.of(new GeometryKey(slice));
+    }
+
+    private static boolean valid(double[] values, int length) {
+        if (values == null || values.length != length) return false;
+        for (double value : values) {
+            if (Double.isNaN(value)) return false;
+        }
+        return true;
+    }
+
+    private static double[] normalize(double[] values) {
+        double[] normalized = new double[values.length];
+        for (int i = 0; i < values.length; i++) normalized[i] = values[i] + 0.0;
+        return normalized;
+    }
+}
@@ -0,0 +1,64 @@
+package org.rt.rtkj.model;
+
+import java.util.Arrays;
+
+public class HeapVoxelBuffer implements VoxelBuffer {
+    private final float[] data;
+
+    public HeapVoxelBuffer(int size) {
+        this.data = new float[size];
+    }
+
+    public HeapVoxelBuffer(float[] data) {
+        this.data = data;
+    }
+
+    @Override
+    public long size() {
+        return data.length;
+    }
+
+    @Override
+    public float get(long index) {
+        return data[(int) index];
+    }
+
+    @Override
+    public void set(long index, float value) {
+        data[(int) index] = value;
+    }
+
+    @Override
+    public void get(long index, float[] dst, int offset, int length) {
+        System.arraycopy(data, Math.toIntExact(index), dst, offset, length);
+    }
+
+    @Override
+    public void put(long index, float[] src, int offset, int length) {
+        System.arraycopy(src, offset, data, Math.toIntExact(index), length);
+    }
+
+    @Override
+    public void fill(float value) {
+        Arrays.fill(data, value);
+    }
+
+    @Override
+    public boolean isDirect() {
+        return false;
+    }
+
+    /**
+     * Heap memory is reclaimed by the garbage collector.
+     */
+    @Override
+    public void close() {
+    }
+
+    /**
+     * @return Backing array
+     */
+    public float[] array() {
+        return data;
+    }
+}
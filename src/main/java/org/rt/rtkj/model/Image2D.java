@@ -11,10 +11,7 @@ import org.rt.rtkj.dicom.PatientPosition;
 import org.rt.rtkj.dicom.PixelRepresentation;
 import org.rt.rtkj.utils.Transform4x4;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Optional;
-import java.util.stream.IntStream;
 
 @Data
 public class Image2D implements HasImagePositionPatient {
@@ -31,7 +28,7 @@ public class Image2D implements HasImagePositionPatient {
     private double rescaleSlope;
     private PixelRepresentation pixelRepresentation;
     private int bitsAllocated;
-    private List<Double> pixels;
+    private double[] pixels; // row-major
     @Getter(AccessLevel.NONE)
     @Setter(AccessLevel.NONE)
     private RowMajorIndex2D indexer = new RowMajorIndex2D();
@@ -58,43 +55,174 @@ public class Image2D implements HasImagePositionPatient {
     }
 
     public boolean setValue(int column, int row, double val) {
-        Optional<Integer> index = indexer.offset(column, row);
-        if (index.isPresent()) {
-            pixels.set(index.get(), val);
-            return true;
-        }
-        return false;
+        if (!indexer.contains(column, row)) return false;
+        pixels[indexer.index(column, row)] = val;
+        return true;
     }
 
     public Optional<Double> getValue(int column, int row) {
-        Optional<Integer> index = indexer.offset(column, row);
-        if (index.isPresent()) {
-            try {
-                var val = pixels.get(index.get());
-                return Optional.of(val);
-            } catch (IndexOutOfBoundsException e) {
-                return Optional.empty();
+        if (!indexer.contains(column, row)) return Optional.empty();
+        return Optional.of(pixels[indexer.index(column, row)]);
+    }
+
+    public Optional<Double> getScaledValue(int colum, int row) {
+        if (!indexer.contains(colum, row)) return Optional.empty();
+        return Optional.of(getScaledUnchecked(colum, row));
+    }
+
+    /**
+     * Get a pixel value.
+     *
+     * @param column column index
+     * @param row    row index
+     * @return Pixel value
+     * @throws IndexOutOfBoundsException if the column or row index is outside of the image
+     */
+    public double get(int column, int row) throws IndexOutOfBoundsException {
+        checkIndex(column, row);
+        return pixels[indexer.index(column, row)];
+    }
+
+    /**
+     * Get a pixel value without validating the column and row index.
+     */
+    public double getUnchecked(int column, int row) {
+        return pixels[indexer.index(column, row)];
+    }
+
+    /**
+     * Get a rescaled pixel value: value * rescale slope + rescale intercept.
+     *
+     * @param column column index
+     * @param row    row index
+     * @return Rescaled pixel value
+     * @throws IndexOutOfBoundsException if the column or row index is outside of the image
+     */
+    public double getScaled(int column, int row) throws IndexOutOfBoundsException {
+        checkIndex(column, row);
+        return getScaledUnchecked(column, row);
+    }
+
+    /**
+     * Get a rescaled pixel value without validating the column and row index.
+     */
+    public double getScaledUnchecked(int column, int row) {
+        return pixels[indexer.index(column, row)] * rescaleSlope + rescaleIntercept;
+    }
+
+    /**
+     * Set a pixel value.
+     *
+     * @param column column index
+     * @param row    row index
+     * @param val    pixel value
+     * @throws IndexOutOfBoundsException if the column or row index is outside of the image
+     */
+    public void set(int column, int row, double val) throws IndexOutOfBoundsException {
+        checkIndex(column, row);
+        pixels[indexer.index(column, row)] = val;
+    }
+
+    /**
+     * Set a pixel value without validating the column and row index.
+     */
+    public void setUnchecked(int column, int row, double val) {
+        pixels[indexer.index(column, row)] = val;
+    }
+
+    /**
+     * Copy the pixel values of a row into an array.
+     *
+     * @param row    row index
+     * @param dst    destination array with room for at least {@link #getColumns()} values after the offset
+     * @param offset offset in the destination array
+     */
+    public void getRow(int row, double[] dst, int offset) {
+        getRegion(0, row, indexer.cols, 1, dst, offset);
+    }
+
+    /**
+     * Copy the pixel values of a rectangular region into an array in row-major order.
+     *
+     * @param column first column of the region
+     * @param row    first row of the region
+     * @param width  number of columns in the region
+     * @param height number of rows in the region
+     * @param dst    destination array with room for at least width * height values after the offset
+     * @param offset offset in the destination array
+     * @throws IndexOutOfBoundsException if the region is not inside the image or doesn't fit in the destination
+     */
+    public void getRegion(int column, int row, int width, int height, double[] dst, int offset)
+            throws IndexOutOfBoundsException {
+        checkRegion(column, row, width, height);
+        for (int r = 0; r < height; r++) {
+            System.arraycopy(pixels, indexer.index(column, row + r), dst, offset + r * width, width);
+        }
+    }
+
+    /**
+     * Copy the rescaled pixel values of a rectangular region into an array in row-major order.
+     *
+     * @see #getRegion(int, int, int, int, double[], int)
+     */
+    public void getScaledRegion(int column, int row, int width, int height, double[] dst, int offset)
+            throws IndexOutOfBoundsException {
+        checkRegion(column, row, width, height);
+        if (offset < 0 || offset + width * height > dst.length) throw new IndexOutOfBoundsException();
+        for (int r = 0; r < height; r++) {
+            int src = indexer.index(column, row + r);
+            int d = offset + r * width;
+            for (int c = 0; c < width; c++) {
+                dst[d + c] = pixels[src + c] * rescaleSlope + rescaleIntercept;
             }
         }
-        return Optional.empty();
     }
 
-    public Optional<Double> getScaledValue(int colum, int row) {
-        var optVal = getValue(colum, row);
-        if (optVal.isPresent())
-            return Optional.of(optVal.get() * getRescaleSlope() + getRescaleIntercept());
-        return Optional.empty();
+    /**
+     * Copy pixel values from an array in row-major order into a rectangular region.
+     *
+     * @param column first column of the region
+     * @param row    first row of the region
+     * @param width  number of columns in the region
+     * @param height number of rows in the region
+     * @param src    source array
+     * @param offset offset in the source array
+     * @throws IndexOutOfBoundsException if the region is not inside the image or the source is too small
+     */
+    public void setRegion(int column, int row, int width, int height, double[] src, int offset)
+            throws IndexOutOfBoundsException {
+        checkRegion(column, row, width, height);
+        for (int r = 0; r < height; r++) {
+            System.arraycopy(src, offset + r * width, pixels, indexer.index(column, row + r), width);
+        }
+    }
+
+    /**
+     * Replace the pixel values.
+     *
+     * @param pixels pixel values in row-major order, the length must match the image dimensions
+     */
+    public void setPixels(double[] pixels) {
+        if (pixels == null || pixels.length != indexer.size())
+            throw new IllegalArgumentException("Number of pixel values doesn't match the image dimensions");
+        this.pixels = pixels;
+    }
+
+    private void checkIndex(int column, int row) {
+        if (!indexer.contains(column, row))
+            throw new IndexOutOfBoundsException("[column, row] = [" + column + ", " + row + "] is outside of the image");
+    }
+
+    private void checkRegion(int column, int row, int width, int height) {
+        if (width < 0 || height < 0 || column < 0 || row < 0
+                || column + width > indexer.cols || row + height > indexer.rows)
+            throw new IndexOutOfBoundsException("Region is outside of the image");
     }
 
     public void resize(int columns, int rows) {
         indexer.rows = rows;
         indexer.cols = columns;
-        int n = indexer.size();
-        pixels = null;
-        if (n > 0) {
-            pixels = new ArrayList<Double>(n);
-            IntStream.range(0, n).forEach(i -> pixels.add(0.0));
-        }
+        pixels = new double[indexer.size()];
         updateInverseTm = true;
     }
 
@@ -112,7 +240,7 @@ public class Image2D implements HasImagePositionPatient {
         rescaleSlope = 0.0;
         pixelRepresentation = PixelRepresentation.NONE;
         bitsAllocated = 0;
-        pixels = null;
+        pixels = new double[0];
         tm.zero();
         itm.zero();
     }
@@ -1,97 +1,174 @@
 package org.rt.rtkj.model;
 
+import lombok.AccessLevel;
 import lombok.Data;
-import org.rt.rtkj.dicom.ImagePositionPatientComparator;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import org.rt.rtkj.dicom.Modality;
 import org.rt.rtkj.dicom.PatientPosition;
 import org.rt.rtkj.dicom.PixelRepresentation;
+import org.rt.rtkj.utils.Geometry;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Stack of slices forming a 3D image. The methods are synchronized on the image, so slices can be added and read
+ * concurrently.
+ * <p>
+ * Slices are kept ordered by their position along the slice normal, the projection of the image position on the
+ * normal of the first slice added. Every slice is inserted at its position with a binary search, so the stack is
+ * ordered after every add. Slices at the same position keep their order of arrival. Slices without an image
+ * position are placed at the end.
+ */
 @Data
 public class Image3D {
-    private List<Image2D> images;
-    private boolean sorted = false;
-    ImagePositionPatientComparator imagePositionPatientComparator = new ImagePositionPatientComparator();
-
-    public void add(Image2D slice) {
-        if (images == null) images = new ArrayList<>();
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private List<Image2D> images = new ArrayList<>();
+    /**
+     * Position along the normal of every slice, in the same order as the slices.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private double[] slicePositions = new double[16];
+    /**
+     * Normal used to order the slices, set by the first slice added.
+     */
+    @Setter(AccessLevel.NONE)
+    private double[] normal;
+
+    private static final double[] AXIAL_NORMAL = {0, 0, 1};
+
+    public synchronized void add(Image2D slice) {
         if (slice.getSOPInstanceUID().isEmpty()) return;
-        images.add(slice);
-        sorted = false;
+        if (normal == null) normal = normal(slice);
+        double position = position(slice);
+        int n = images.size();
+        // first index with a position larger than the new slice
+        int lo = 0;
+        int hi = n;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (slicePositions[mid] <= position) lo = mid + 1;
+            else hi = mid;
+        }
+        if (n == slicePositions.length) slicePositions = Arrays.copyOf(slicePositions, 2 * n);
+        System.arraycopy(slicePositions, lo, slicePositions, lo + 1, n - lo);
+        slicePositions[lo] = position;
+        images.add(lo, slice);
+    }
+
+    /**
+     * @return Copy of the slices in their current order
+     */
+    public synchronized List<Image2D> getImages() {
+        return new ArrayList<>(images);
     }
 
-    public Image2D get(int index) throws NullPointerException, IndexOutOfBoundsException {
+    public synchronized Image2D get(int index) throws NullPointerException, IndexOutOfBoundsException {
         return images.get(index);
     }
 
-    public int size() {
-        return (images == null) ? 0 : images.size();
+    public synchronized int size() {
+        return images.size();
+    }
+
+    /**
+     * Position of a slice along the slice normal.
+     *
+     * @param index slice index
+     * @return Projection of the image position on the normal [mm]
+     */
+    public synchronized double getSlicePosition(int index) {
+        if (index < 0 || index >= images.size()) throw new IndexOutOfBoundsException(index);
+        return slicePositions[index];
+    }
+
+    /**
+     * Recompute the slice positions and reorder the slices, e.g. after the image position of a slice was modified.
+     */
+    public synchronized void sort() {
+        if (images.isEmpty()) return;
+        normal = normal(images.get(0));
+        images.sort(Comparator.comparingDouble(this::position));
+        int n = images.size();
+        if (slicePositions.length < n) slicePositions = new double[Math.max(2 * slicePositions.length, n)];
+        for (int i = 0; i < n; i++) slicePositions[i] = position(images.get(i));
+    }
+
+    private static double[] normal(Image2D slice) {
+        double[] iop = slice.getImageOrientationPatient();
+        if (iop == null || iop.length != 6) return AXIAL_NORMAL;
+        return Geometry.sliceNormal(iop);
     }
 
-    public void sort() {
-        images.sort(imagePositionPatientComparator);
-        sorted = true;
+    private double position(Image2D slice) {
+        double[] ipp = slice.getImagePositionPatient();
+        if (ipp == null || ipp.length != 3) return Double.POSITIVE_INFINITY;
+        return Geometry.dot(ipp, normal);
     }
 
-    public String getFrameOfReferenceUID() {
+    public synchronized String getFrameOfReferenceUID() {
         if (images.isEmpty()) return "";
         return images.get(0).getFrameOfReferenceUID();
     }
 
-    public Modality getModality() {
+    public synchronized Modality getModality() {
         if (images.isEmpty()) return Modality.UNKNOWN;
         return images.get(0).getModality();
     }
 
-    public String getStudyInstanceUID() {
+    public synchronized String getStudyInstanceUID() {
         if (images.isEmpty()) return "";
         return images.get(0).getStudyInstanceUID();
     }
 
-    public PatientPosition getPatientPosition() {
+    public synchronized PatientPosition getPatientPosition() {
         if (images.isEmpty()) return PatientPosition.UNKOWN;
         return images.get(0).getPatientPosition();
     }
 
-    public double[] getPixelSpacing() {
+    public synchronized double[] getPixelSpacing() {
         if (images.isEmpty()) return null;
         return images.get(0).getPixelSpacing();
     }
 
-    public Optional<double[]> getImagePositionPatient() {
+    public synchronized Optional<double[]> getImagePositionPatient() {
         if (images.isEmpty()) return Optional.empty();
-        if (!sorted) sort();
         return Optional.of(images.get(0).getImagePositionPatient());
     }
 
-    public double[] getImageOrientationPatient() {
+    public synchronized double[] getImageOrientationPatient() {
         if (images.isEmpty()) return null;
         return images.get(0).getImageOrientationPatient();
     }
 
-    public PixelRepresentation getPixelRepresentation() {
+    public synchronized PixelRepresentation getPixelRepresentation() {
         if (images.isEmpty()) return PixelRepresentation.NONE;
         return images.get(0).getPixelRepresentation();
     }
 
-    public int getBitsAllocated() {
+    public synchronized int getBitsAllocated() {
         if (images.isEmpty()) return 0;
         return images.get(0).getBitsAllocated();
     }
 
-    public Optional<Double> getValue(int column, int row, int depth) {
-        if (!sorted) sort();
+    public synchronized Optional<Double> getValue(int column, int row, int depth) {
         int nd = images.size();
         if (depth < 0 || depth >= nd) return Optional.empty();
         var image = images.get(depth);
         return image.getValue(column, row);
     }
 
-    public Optional<Double> getScaledValue(int column, int row, int depth) {
-        if (!sorted) sort();
+    public synchronized Optional<Double> getScaledValue(int column, int row, int depth) {
         int nd = images.size();
         if (depth < 0 || depth >= nd) return Optional.empty();
         var image = images.get(depth);
@@ -1,14 +1,30 @@
 package org.rt.rtkj.model;
 
 import lombok.extern.log4j.Log4j2;
+import org.apache.commons.math3.util.Precision;
 import org.rt.rtkj.dicom.*;
+import org.rt.rtkj.utils.Geometry;
 
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Optional;
 
 @Log4j2
 public class ImageFactory {
 
     public static Optional<Image2D> build(CT ct) {
+        return build(ct, false);
+    }
+
+    /**
+     * Build an image from a CT. The samples are decoded into the image in a single pass.
+     *
+     * @param ct      CT image
+     * @param rescale store the rescaled pixel values (rescale slope and intercept are then set to 1 and 0)
+     * @return Image if the CT is valid.
+     */
+    public static Optional<Image2D> build(CT ct, boolean rescale) {
         // Validation of the input data
         if (ct == null) return Optional.empty();
         if (ct.getSOPInstanceUID().isEmpty()) {
@@ -81,21 +97,22 @@ public class ImageFactory {
         int rows = ct.getRows();
         int cols = ct.getColumns();
         image.resize(cols, rows);
-        int idx = 0;
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                var pixel = ct.getPixelData().get(idx);
-                if (!image.setValue(j, i, pixel)) {
-                    log.error("Unable to set pixel value at [row, column] = [" + i + ", " + j + "] = " + (double) pixel);
-                    return Optional.empty();
-                }
-                idx++;
-            }
-        }
+        if (!decode(ct.getPixelBuffer(), image, rescale)) return Optional.empty();
         return Optional.of(image);
     }
 
     public static Optional<Image2D> build(PT pt) {
+        return build(pt, false);
+    }
+
+    /**
+     * Build an image from a PT. The samples are decoded into the image in a single pass.
+     *
+     * @param pt      PT image
+     * @param rescale store the rescaled pixel values (rescale slope and intercept are then set to 1 and 0)
+     * @return Image if the PT is valid.
+     */
+    public static Optional<Image2D> build(PT pt, boolean rescale) {
         // Validation of the input data
         if (pt == null) return Optional.empty();
         if (pt.getSOPInstanceUID().isEmpty()) {
@@ -168,17 +185,132 @@ public class ImageFactory {
         int rows = pt.getRows();
         int cols = pt.getColumns();
         image.resize(cols, rows);
-        int idx = 0;
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                var pixel = pt.getPixelData().get(idx);
-                if (!image.setValue(j, i, pixel)) {
-                    log.error("Unable to set pixel value at [row, column] = [" + i + ", " + j + "] = " + (double) pixel);
+        if (!decode(pt.getPixelBuffer(), image, rescale)) return Optional.empty();
+        return Optional.of(image);
+    }
+
+    /**
+     * Decode the samples of a pixel buffer into the pixels of an image.
+     *
+     * @param buffer  stored pixel values
+     * @param image   image with the rescale parameters and dimensions set
+     * @param rescale store the rescaled values, the rescale parameters of the image are reset to the identity
+     * @return False if the number of samples doesn't match the image dimensions.
+     */
+    private static boolean decode(PixelBuffer buffer, Image2D image, boolean rescale) {
+        double[] pixels = image.getPixels();
+        if (buffer.size() != pixels.length) {
+            log.error("Number of pixel values [" + buffer.size() + "] doesn't match the image dimensions [rows, columns] = ["
+                    + image.getRows() + ", " + image.getColumns() + "]");
+            return false;
+        }
+        if (rescale) {
+            PixelDecoder.rescale(buffer, image.getRescaleSlope(), image.getRescaleIntercept(), pixels, 0);
+            image.setRescaleSlope(1.0);
+            image.setRescaleIntercept(0.0);
+        } else {
+            PixelDecoder.rescale(buffer, 1.0, 0.0, pixels, 0);
+        }
+        return true;
+    }
+
+    /**
+     * Tolerance [mm] on the distance between consecutive slices of a volume.
+     */
+    public static final double SLICE_SPACING_TOLERANCE = 1e-3;
+
+    /**
+     * Build a dense volume from a set of slices. The slices are ordered by their position along the slice normal,
+     * must have the same dimensions, pixel spacing and orientation and must be equidistant. The voxel values are the
+     * rescaled pixel values.
+     *
+     * @param image3D slices
+     * @return Dense volume if the slices form a regular grid.
+     */
+    public static Optional<Volume3D> build(Image3D image3D) {
+        return build(image3D, VolumeStorage.HEAP);
+    }
+
+    /**
+     * Build a dense volume from a set of slices.
+     *
+     * @param image3D slices
+     * @param storage location of the voxel storage
+     * @return Dense volume if the slices form a regular grid.
+     * @see #build(Image3D)
+     */
+    public static Optional<Volume3D> build(Image3D image3D, VolumeStorage storage) {
+        if (image3D == null) return Optional.empty();
+        // snapshot of the slices, the image can still be modified concurrently
+        List<Image2D> slices = image3D.getImages();
+        if (slices.isEmpty()) return Optional.empty();
+        Image2D first = slices.get(0);
+        double[] iop = first.getImageOrientationPatient();
+        double[] pixelSpacing = first.getPixelSpacing();
+        if (iop == null || iop.length != 6) {
+            log.error("Missing or invalid image orientation patient");
+            return Optional.empty();
+        }
+        if (pixelSpacing == null || pixelSpacing.length != 2) {
+            log.error("Missing or invalid pixel spacing");
+            return Optional.empty();
+        }
+        int cols = first.getColumns();
+        int rows = first.getRows();
+        for (Image2D slice : slices) {
+            if (slice.getColumns() != cols || slice.getRows() != rows) {
+                log.error("Slices in a volume must have the same number of rows and columns");
+                return Optional.empty();
+            }
+            if (slice.getImagePositionPatient() == null || slice.getImagePositionPatient().length != 3) {
+                log.error("Missing or invalid image position patient");
+                return Optional.empty();
+            }
+            if (!Arrays.equals(slice.getImageOrientationPatient(), iop)
+                    || !Arrays.equals(slice.getPixelSpacing(), pixelSpacing)) {
+                log.error("Slices in a volume must have the same orientation and pixel spacing");
+                return Optional.empty();
+            }
+        }
+
+        double[] normal = Geometry.sliceNormal(iop);
+        slices.sort(Comparator.comparingDouble(slice -> Geometry.dot(slice.getImagePositionPatient(), normal)));
+        double sliceSpacing = 1.0;
+        if (slices.size() > 1) {
+            double z0 = Geometry.dot(slices.get(0).getImagePositionPatient(), normal);
+            double z1 = Geometry.dot(slices.get(1).getImagePositionPatient(), normal);
+            sliceSpacing = z1 - z0;
+            if (sliceSpacing <= 0) {
+                log.error("Volume contains multiple slices at the same position");
+                return Optional.empty();
+            }
+            for (int k = 2; k < slices.size(); k++) {
+                double z = Geometry.dot(slices.get(k).getImagePositionPatient(), normal);
+                if (!Precision.equals(z - z0, k * sliceSpacing, SLICE_SPACING_TOLERANCE)) {
+                    log.error("Slices in a volume must be equidistant");
                     return Optional.empty();
                 }
-                idx++;
             }
         }
-        return Optional.of(image);
+
+        Volume3D volume = new Volume3D(cols, rows, slices.size(), storage);
+        volume.setFrameOfReferenceUID(first.getFrameOfReferenceUID());
+        volume.setOrigin(slices.get(0).getImagePositionPatient().clone());
+        volume.setSpacing(new double[]{pixelSpacing[1], pixelSpacing[0], sliceSpacing});
+        volume.setImageOrientationPatient(iop);
+        VoxelBuffer voxels = volume.getVoxels();
+        int n = volume.sliceSize();
+        float[] values = new float[n];
+        for (int k = 0; k < slices.size(); k++) {
+            Image2D slice = slices.get(k);
+            double[] pixels = slice.getPixels();
+            double slope = slice.getRescaleSlope();
+            double intercept = slice.getRescaleIntercept();
+            for (int i = 0; i < n; i++) {
+                values[i] = (float) (pixels[i] * slope + intercept);
+            }
+            voxels.put((long) k * n, values, 0, n);
+        }
+        return Optional.of(volume);
     }
 }
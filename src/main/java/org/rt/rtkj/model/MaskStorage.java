@@ -0,0 +1,15 @@
+package org.rt.rtkj.model;
+
+/**
+ * Representation of a ROI mask.
+ */
+public enum MaskStorage {
+    /**
+     * One bit per voxel, suited for large ROIs and fast set operations.
+     */
+    BIT_PACKED,
+    /**
+     * Runs of inside voxels per row, suited for small ROIs on large grids.
+     */
+    RUN_LENGTH
+}
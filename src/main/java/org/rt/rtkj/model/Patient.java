@@ -7,7 +7,13 @@ import lombok.Setter;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Patient with its studies. Images can be added concurrently from multiple threads: studies and series are looked
+ * up in concurrent maps and only slices of the same series contend for a lock.
+ */
 @Data
 public class Patient {
     private String firstName;
@@ -15,13 +21,29 @@ public class Patient {
     @Getter(AccessLevel.NONE)
     @Setter(AccessLevel.NONE)
     private List<String> patientIDs;
-    @Getter(AccessLevel.PROTECTED)
+    /**
+     * Studies by StudyInstanceUID.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Map<String, Study> studies;
+    /**
+     * Studies in order of creation.
+     */
+    @Getter(AccessLevel.NONE)
     @Setter(AccessLevel.NONE)
-    private List<Study> studies;
+    private List<Study> order;
 
     public Patient() {
         patientIDs = new ArrayList<>();
-        studies = new ArrayList<>();
+        studies = new ConcurrentHashMap<>();
+        order = new ArrayList<>();
+    }
+
+    protected List<Study> getStudies() {
+        synchronized (order) {
+            return new ArrayList<>(order);
+        }
     }
 
     public void add(Image2D image) {
@@ -30,16 +52,13 @@ public class Patient {
                 image.getStudyInstanceUID().isEmpty() ||
                 image.getSeriesInstanceUID().isEmpty())
             return;
-        String uid = image.getStudyInstanceUID();
-        for (Study study : studies) {
-            if (uid.equals(study.getStudyInstanceUID())) {
-                study.add(image);
-                return;
+        studies.computeIfAbsent(image.getStudyInstanceUID(), uid -> {
+            Study study = new Study(uid);
+            synchronized (order) {
+                order.add(study);
             }
-        }
-        Study study = new Study();
-        study.add(image);
-        studies.add(study);
+            return study;
+        }).add(image);
     }
 
     public int sizeStudies() {
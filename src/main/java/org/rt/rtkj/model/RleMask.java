@@ -0,0 +1,216 @@
+package org.rt.rtkj.model;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * Sparse ROI mask storing the runs of inside voxels per row. Slices without inside voxels don't use any memory
+ * apart from a null reference.
+ * <p>
+ * For a non-empty slice s, the runs of row r are stored as inclusive [first, last] column pairs in
+ * {@code runs[s][2 * i], runs[s][2 * i + 1]} for {@code offsets[s][r] <= i < offsets[s][r + 1]}.
+ */
+public class RleMask implements RoiMask {
+    @Getter
+    private final int columns;
+    @Getter
+    private final int rows;
+    @Getter
+    private final int slices;
+    private final int[][] offsets;
+    private final int[][] runs;
+
+    private RleMask(int columns, int rows, int slices, int[][] offsets, int[][] runs) {
+        this.columns = columns;
+        this.rows = rows;
+        this.slices = slices;
+        this.offsets = offsets;
+        this.runs = runs;
+    }
+
+    static class Builder implements RoiMask.Builder {
+        private final int columns;
+        private final int rows;
+        private final int[][] offsets;
+        private final int[][] runs;
+        private int slice = -1;
+        private int row = -1;
+        private int[] current = new int[16];
+        private int length = 0; // number of ints in current
+
+        Builder(int columns, int rows, int slices) {
+            if (columns < 0 || rows < 0 || slices < 0) throw new IllegalArgumentException("Negative mask dimensions");
+            this.columns = columns;
+            this.rows = rows;
+            this.offsets = new int[slices][];
+            this.runs = new int[slices][];
+        }
+
+        @Override
+        public Builder add(int slice, int row, int firstColumn, int lastColumn) {
+            if (firstColumn > lastColumn) return this;
+            if (slice < this.slice || (slice == this.slice && row < this.row))
+                throw new IllegalArgumentException("Runs must be added in order of increasing slice and row");
+            if (slice != this.slice) {
+                finishSlice();
+                this.slice = slice;
+                offsets[slice] = new int[rows + 1];
+            }
+            int[] sliceOffsets = offsets[slice];
+            if (row != this.row) {
+                // rows in between are empty
+                for (int r = this.row + 1; r <= row; r++) sliceOffsets[r] = length / 2;
+                this.row = row;
+            }
+            if (length > 2 * sliceOffsets[row] && firstColumn <= current[length - 1] + 1) {
+                if (firstColumn < current[length - 2])
+                    throw new IllegalArgumentException("Runs must be added in order of increasing column");
+                current[length - 1] = Math.max(current[length - 1], lastColumn);
+                return this;
+            }
+            if (length + 2 > current.length) current = Arrays.copyOf(current, 2 * current.length);
+            current[length++] = firstColumn;
+            current[length++] = lastColumn;
+            return this;
+        }
+
+        private void finishSlice() {
+            if (slice < 0) return;
+            for (int r = row + 1; r <= rows; r++) offsets[slice][r] = length / 2;
+            runs[slice] = Arrays.copyOf(current, length);
+            length = 0;
+            row = -1;
+        }
+
+        @Override
+        public RleMask build() {
+            finishSlice();
+            slice = offsets.length;
+            return new RleMask(columns, rows, offsets.length, offsets, runs);
+        }
+    }
+
+    @Override
+    public boolean get(int column, int row, int slice) {
+        int[] sliceRuns = runs[slice];
+        if (sliceRuns == null) return false;
+        int lo = offsets[slice][row];
+        int hi = offsets[slice][row + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sliceRuns[2 * mid + 1] < column) lo = mid + 1;
+            else if (sliceRuns[2 * mid] > column) hi = mid - 1;
+            else return true;
+        }
+        return false;
+    }
+
+    @Override
+    public long count() {
+        long count = 0;
+        for (int[] sliceRuns : runs) {
+            if (sliceRuns == null) continue;
+            for (int i = 0; i < sliceRuns.length; i += 2) count += sliceRuns[i + 1] - sliceRuns[i] + 1;
+        }
+        return count;
+    }
+
+    /**
+     * @return Number of runs
+     */
+    public long runCount() {
+        long count = 0;
+        for (int[] sliceRuns : runs) {
+            if (sliceRuns != null) count += sliceRuns.length / 2;
+        }
+        return count;
+    }
+
+    @Override
+    public void forEachRun(RunConsumer consumer) {
+        for (int s = 0; s < slices; s++) {
+            int[] sliceRuns = runs[s];
+            if (sliceRuns == null || sliceRuns.length == 0) continue;
+            int[] sliceOffsets = offsets[s];
+            for (int r = 0; r < rows; r++) {
+                for (int i = sliceOffsets[r]; i < sliceOffsets[r + 1]; i++) {
+                    consumer.accept(s, r, sliceRuns[2 * i], sliceRuns[2 * i + 1]);
+                }
+            }
+        }
+    }
+
+    private interface Operator {
+        boolean apply(boolean a, boolean b);
+    }
+
+    private RleMask combine(RoiMask other, Operator operator) {
+        RoiMask.checkDimensions(this, other);
+        RleMask b = (RleMask) other.to(MaskStorage.RUN_LENGTH);
+        Builder builder = new Builder(columns, rows, slices);
+        for (int s = 0; s < slices; s++) {
+            if (runs[s] == null && b.runs[s] == null) continue;
+            for (int r = 0; r < rows; r++) {
+                merge(s, r, b, operator, builder);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Sweep over the run boundaries of a row in both masks and emit the runs where the operator holds.
+     */
+    private void merge(int slice, int row, RleMask other, Operator operator, Builder builder) {
+        int[] a = runs[slice];
+        int[] b = other.runs[slice];
+        int i = (a == null) ? 0 : 2 * offsets[slice][row];
+        int na = (a == null) ? 0 : 2 * offsets[slice][row + 1];
+        int j = (b == null) ? 0 : 2 * other.offsets[slice][row];
+        int nb = (b == null) ? 0 : 2 * other.offsets[slice][row + 1];
+        boolean inA = false;
+        boolean inB = false;
+        int start = -1;
+        while (i < na || j < nb) {
+            // boundaries are half-open: a run [first, last] toggles at first and last + 1
+            int xa = (i < na) ? a[i] + (i & 1) : Integer.MAX_VALUE;
+            int xb = (j < nb) ? b[j] + (j & 1) : Integer.MAX_VALUE;
+            int x = Math.min(xa, xb);
+            if (xa == x) {
+                inA = !inA;
+                i++;
+            }
+            if (xb == x) {
+                inB = !inB;
+                j++;
+            }
+            boolean in = operator.apply(inA, inB);
+            if (in && start < 0) {
+                start = x;
+            } else if (!in && start >= 0) {
+                builder.add(slice, row, start, x - 1);
+                start = -1;
+            }
+        }
+    }
+
+    @Override
+    public RleMask union(RoiMask other) {
+        return combine(other, (a, b) -> a || b);
+    }
+
+    @Override
+    public RleMask intersection(RoiMask other) {
+        return combine(other, (a, b) -> a && b);
+    }
+
+    @Override
+    public RleMask subtract(RoiMask other) {
+        return combine(other, (a, b) -> a && !b);
+    }
+
+    @Override
+    public MaskStorage getStorage() {
+        return MaskStorage.RUN_LENGTH;
+    }
+}
@@ -0,0 +1,83 @@
+package org.rt.rtkj.model;
+
+/**
+ * Binary mask of a ROI on a grid of columns x rows x slices voxels. Voxels are ordered by column, row and slice.
+ * <p>
+ * Set operations require masks with the same dimensions and return a new mask with the representation of this
+ * mask.
+ */
+public interface RoiMask {
+
+    /**
+     * Receives a run of inside voxels in a row.
+     */
+    @FunctionalInterface
+    interface RunConsumer {
+        void accept(int slice, int row, int firstColumn, int lastColumn);
+    }
+
+    /**
+     * Collects the runs of a mask. Runs must be added in order of increasing slice and row, runs within a row in
+     * order of increasing column. Overlapping and adjacent runs are merged.
+     */
+    interface Builder {
+        Builder add(int slice, int row, int firstColumn, int lastColumn);
+
+        RoiMask build();
+    }
+
+    int getColumns();
+
+    int getRows();
+
+    int getSlices();
+
+    default long size() {
+        return (long) getColumns() * getRows() * getSlices();
+    }
+
+    boolean get(int column, int row, int slice);
+
+    /**
+     * @return Number of voxels inside the mask
+     */
+    long count();
+
+    default boolean isEmpty() {
+        return count() == 0;
+    }
+
+    /**
+     * Visit the runs of inside voxels in order of increasing slice, row and column. Empty rows and slices are
+     * skipped.
+     */
+    void forEachRun(RunConsumer consumer);
+
+    RoiMask union(RoiMask other);
+
+    RoiMask intersection(RoiMask other);
+
+    RoiMask subtract(RoiMask other);
+
+    MaskStorage getStorage();
+
+    /**
+     * Convert the mask to another representation.
+     */
+    default RoiMask to(MaskStorage storage) {
+        if (storage == getStorage()) return this;
+        Builder builder = builder(getColumns(), getRows(), getSlices(), storage);
+        forEachRun(builder::add);
+        return builder.build();
+    }
+
+    static Builder builder(int columns, int rows, int slices, MaskStorage storage) {
+        if (storage == MaskStorage.RUN_LENGTH) return new RleMask.Builder(columns, rows, slices);
+        return new BitMask.Builder(columns, rows, slices);
+    }
+
+    static void checkDimensions(RoiMask a, RoiMask b) {
+        if (a.getColumns() != b.getColumns() || a.getRows() != b.getRows() || a.getSlices() != b.getSlices())
+            throw new IllegalArgumentException("Masks have different dimensions");
+    }
+}
@@ -11,6 +11,17 @@ public class RowMajorIndex2D {
         return Optional.of(r * cols + c);
     }
 
+    /**
+     * Offset of a column and row without bounds checking.
+     */
+    public int index(int c, int r) {
+        return r * cols + c;
+    }
+
+    public boolean contains(int c, int r) {
+        return r >= 0 && r < rows && c >= 0 && c < cols;
+    }
+
     public int size() {
         return rows * cols;
     }
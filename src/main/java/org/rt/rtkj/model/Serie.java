@@ -4,46 +4,44 @@ import lombok.AccessLevel;
 import lombok.Data;
 import lombok.Getter;
 import lombok.Setter;
-import org.apache.commons.math3.util.Precision;
-import org.rt.rtkj.dicom.Modality;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Series with its 3D images. Slices are added under the lock of the series, so different series can be filled in
+ * parallel.
+ */
 @Data
 public class Serie {
     private String seriesInstanceUID;
-    @Getter(AccessLevel.PROTECTED)
+    @Getter(AccessLevel.NONE)
     @Setter(AccessLevel.NONE)
     private List<Image3D> images;
+    /**
+     * 3D images of the series by the geometry of their slices.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Map<GeometryKey, Image3D> index;
+
+    protected synchronized List<Image3D> getImages() {
+        return (images == null) ? new ArrayList<>() : new ArrayList<>(images);
+    }
 
-    public void add(Image2D slice) {
+    public synchronized void add(Image2D slice) {
         if (images == null) images = new ArrayList<>();
+        if (index == null) index = new HashMap<>();
         if (slice == null || slice.getSOPInstanceUID().isEmpty() ||
                 slice.getSeriesInstanceUID().isEmpty()) return;
         if (seriesInstanceUID.isEmpty() && images.isEmpty())
             seriesInstanceUID = slice.getSeriesInstanceUID();
-        for (Image3D image3D : images) {
-            if (image3D.getFrameOfReferenceUID().equals(slice.getFrameOfReferenceUID()) &&
-                    image3D.getModality().equals(slice.getModality()) &&
-                    image3D.getStudyInstanceUID().equals(slice.getStudyInstanceUID()) &&
-                    image3D.getPatientPosition().equals(slice.getPatientPosition()) &&
-                    image3D.getPixelSpacing() != null && image3D.getPixelSpacing().length == 2 &&
-                    slice.getPixelSpacing() != null && slice.getPixelSpacing().length == 2 &&
-                    Precision.equals(image3D.getPixelSpacing()[0], slice.getPixelSpacing()[0], Precision.EPSILON) &&
-                    Precision.equals(image3D.getPixelSpacing()[1], slice.getPixelSpacing()[1], Precision.EPSILON) &&
-                    image3D.getImageOrientationPatient() != null && image3D.getImageOrientationPatient().length == 6 &&
-                    slice.getImageOrientationPatient() != null && slice.getImageOrientationPatient().length == 6 &&
-                    Precision.equals(image3D.getImageOrientationPatient()[0], slice.getImageOrientationPatient()[0], Precision.EPSILON) &&
-                    Precision.equals(image3D.getImageOrientationPatient()[1], slice.getImageOrientationPatient()[1], Precision.EPSILON) &&
-                    Precision.equals(image3D.getImageOrientationPatient()[2], slice.getImageOrientationPatient()[2], Precision.EPSILON) &&
-                    Precision.equals(image3D.getImageOrientationPatient()[3], slice.getImageOrientationPatient()[3], Precision.EPSILON) &&
-                    Precision.equals(image3D.getImageOrientationPatient()[4], slice.getImageOrientationPatient()[4], Precision.EPSILON) &&
-                    Precision.equals(image3D.getImageOrientationPatient()[5], slice.getImageOrientationPatient()[5], Precision.EPSILON) &&
-                    image3D.getPixelRepresentation() == slice.getPixelRepresentation() &&
-                    image3D.getBitsAllocated() == slice.getBitsAllocated() &&
-                    (image3D.getModality() == Modality.CT || image3D.getModality() == Modality.PT || image3D.getModality() == Modality.MR)
-            ) {
+        var optKey = GeometryKey.of(slice);
+        if (optKey.isPresent()) {
+            Image3D image3D = index.get(optKey.get());
+            if (image3D != null) {
                 image3D.add(slice);
                 return;
             }
@@ -51,5 +49,6 @@ public class Serie {
         Image3D image3D = new Image3D();
         image3D.add(slice);
         images.add(image3D);
+        optKey.ifPresent(key -> index.put(key, image3D));
     }
 }
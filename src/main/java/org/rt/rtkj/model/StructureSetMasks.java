@@ -0,0 +1,56 @@
+package org.rt.rtkj.model;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.rt.rtkj.dicom.RTStructureSet;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Rasterized ROIs of a structure set on a common grid, keyed by ROI number.
+ */
+@Getter
+public class StructureSetMasks {
+    private final RTStructureSet structureSet;
+    private final int columns;
+    private final int rows;
+    private final int slices;
+    @Getter(AccessLevel.NONE)
+    private final Map<Integer, RoiMask> masks = new LinkedHashMap<>();
+
+    public StructureSetMasks(RTStructureSet structureSet, int columns, int rows, int slices) {
+        this.structureSet = structureSet;
+        this.columns = columns;
+        this.rows = rows;
+        this.slices = slices;
+    }
+
+    /**
+     * Add or replace the mask of a ROI.
+     *
+     * @throws IllegalArgumentException if the mask dimensions don't match the grid
+     */
+    public synchronized void put(int roiNumber, RoiMask mask) {
+        if (mask.getColumns() != columns || mask.getRows() != rows || mask.getSlices() != slices)
+            throw new IllegalArgumentException("Mask dimensions don't match the grid");
+        masks.put(roiNumber, mask);
+    }
+
+    public synchronized Optional<RoiMask> get(int roiNumber) {
+        return Optional.ofNullable(masks.get(roiNumber));
+    }
+
+    /**
+     * @return Unmodifiable copy of the masks in insertion order
+     */
+    public synchronized Map<Integer, RoiMask> getMasks() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(masks));
+    }
+
+    public synchronized int size() {
+        return masks.size();
+    }
+}
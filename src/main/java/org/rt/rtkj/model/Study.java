@@ -7,18 +7,33 @@ import lombok.Setter;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Study with its series. Images can be added concurrently, see {@link Patient}.
+ */
 @Data
 public class Study {
-    private String studyInstanceUID;
+    private volatile String studyInstanceUID;
 
-    @Getter(AccessLevel.PROTECTED)
+    /**
+     * Series by SeriesInstanceUID.
+     */
+    @Getter(AccessLevel.NONE)
     @Setter(AccessLevel.NONE)
-    private List<Serie> series;
+    private Map<String, Serie> series;
+    /**
+     * Series in order of creation.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private List<Serie> order;
 
     public Study() {
         studyInstanceUID = "";
-        series = new ArrayList<>();
+        series = new ConcurrentHashMap<>();
+        order = new ArrayList<>();
     }
 
     public Study(String studyInstanceUID) {
@@ -26,27 +41,34 @@ public class Study {
             this.studyInstanceUID = "";
         else
             this.studyInstanceUID = studyInstanceUID;
-        series = new ArrayList<>();
+        series = new ConcurrentHashMap<>();
+        order = new ArrayList<>();
+    }
+
+    protected List<Serie> getSeries() {
+        synchronized (order) {
+            return new ArrayList<>(order);
+        }
     }
 
     public void add(Image2D image) {
-        if (series == null) series = new ArrayList<>();
         if (image == null || image.getSOPInstanceUID().isEmpty() ||
                 image.getStudyInstanceUID().isEmpty() || image.getSeriesInstanceUID().isEmpty())
             return;
-        if (series.isEmpty() && studyInstanceUID.isEmpty())
-            this.studyInstanceUID = image.getStudyInstanceUID();
-        if (!this.studyInstanceUID.equals(image.getStudyInstanceUID())) return;
-        String uid = image.getSeriesInstanceUID();
-        for (Serie serie : series) {
-            if (serie.getSeriesInstanceUID().equals(uid)) {
-                serie.add(image);
-                return;
+        if (studyInstanceUID.isEmpty()) {
+            synchronized (order) {
+                if (series.isEmpty() && studyInstanceUID.isEmpty())
+                    this.studyInstanceUID = image.getStudyInstanceUID();
             }
         }
-        Serie serie = new Serie();
-        serie.setSeriesInstanceUID(uid);
-        serie.add(image);
-        series.add(serie);
+        if (!this.studyInstanceUID.equals(image.getStudyInstanceUID())) return;
+        series.computeIfAbsent(image.getSeriesInstanceUID(), uid -> {
+            Serie serie = new Serie();
+            serie.setSeriesInstanceUID(uid);
+            synchronized (order) {
+                order.add(serie);
+            }
+            return serie;
+        }).add(image);
     }
 }
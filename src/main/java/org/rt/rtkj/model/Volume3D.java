@@ -0,0 +1,208 @@
+package org.rt.rtkj.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.rt.rtkj.utils.Geometry;
+
+import java.util.Arrays;
+
+/**
+ * Dense 3D image with the voxel values stored in a single contiguous array. The column index varies fastest,
+ * followed by the row and slice index: {@code index = (slice * rows + row) * columns + column}.
+ * <p>
+ * The voxel at [column, row, slice] is located at
+ * {@code origin + column * spacing[0] * rowCosine + row * spacing[1] * columnCosine + slice * spacing[2] * sliceNormal}.
+ * <p>
+ * Voxels are stored on the heap or off-heap (see {@link VolumeStorage}). Off-heap volumes can exceed 2^31 voxels and
+ * should be closed when no longer needed to release their memory.
+ */
+@Getter
+public class Volume3D implements AutoCloseable {
+    private final int columns;
+    private final int rows;
+    private final int slices;
+    private final VoxelBuffer voxels;
+    @Setter
+    private String frameOfReferenceUID = "";
+    /**
+     * Position of the first voxel [x, y, z].
+     */
+    @Setter
+    private double[] origin = {0, 0, 0};
+    /**
+     * Distance between voxel centers along the column, row and slice index.
+     */
+    @Setter
+    private double[] spacing = {1, 1, 1};
+    /**
+     * Direction cosines of the row (column index), column (row index) and slice axis.
+     */
+    @Setter
+    private double[] direction = {1, 0, 0, 0, 1, 0, 0, 0, 1};
+
+    public Volume3D(int columns, int rows, int slices) {
+        this(columns, rows, slices, VolumeStorage.HEAP);
+    }
+
+    public Volume3D(int columns, int rows, int slices, VolumeStorage storage) {
+        if (columns < 0 || rows < 0 || slices < 0)
+            throw new IllegalArgumentException("Volume dimensions can't be negative");
+        this.columns = columns;
+        this.rows = rows;
+        this.slices = slices;
+        this.voxels = VoxelBuffer.allocate((long) columns * rows * slices, storage);
+    }
+
+    /**
+     * Create a volume on top of existing voxel storage.
+     *
+     * @param columns number of columns
+     * @param rows    number of rows
+     * @param slices  number of slices
+     * @param voxels  voxel values in x-fastest order
+     */
+    public Volume3D(int columns, int rows, int slices, VoxelBuffer voxels) {
+        if (columns < 0 || rows < 0 || slices < 0)
+            throw new IllegalArgumentException("Volume dimensions can't be negative");
+        if (voxels.size() != (long) columns * rows * slices)
+            throw new IllegalArgumentException("Size of the voxel buffer doesn't match the volume dimensions");
+        this.columns = columns;
+        this.rows = rows;
+        this.slices = slices;
+        this.voxels = voxels;
+    }
+
+    /**
+     * Number of voxels in the volume.
+     */
+    public long size() {
+        return voxels.size();
+    }
+
+    /**
+     * Number of voxels in a single slice.
+     */
+    public int sliceSize() {
+        return columns * rows;
+    }
+
+    public long index(int column, int row, int slice) {
+        return ((long) slice * rows + row) * columns + column;
+    }
+
+    public boolean contains(int column, int row, int slice) {
+        return column >= 0 && column < columns && row >= 0 && row < rows && slice >= 0 && slice < slices;
+    }
+
+    /**
+     * Voxel value without bounds checking on the individual indices.
+     */
+    public float get(int column, int row, int slice) {
+        return voxels.get(((long) slice * rows + row) * columns + column);
+    }
+
+    public float get(long index) {
+        return voxels.get(index);
+    }
+
+    /**
+     * Set a voxel value without bounds checking on the individual indices.
+     */
+    public void set(int column, int row, int slice, float value) {
+        voxels.set(((long) slice * rows + row) * columns + column, value);
+    }
+
+    public void set(long index, float value) {
+        voxels.set(index, value);
+    }
+
+    public void fill(float value) {
+        voxels.fill(value);
+    }
+
+    public boolean isDirect() {
+        return voxels.isDirect();
+    }
+
+    /**
+     * Release the voxel storage. The volume can't be accessed afterwards.
+     */
+    @Override
+    public void close() {
+        voxels.close();
+    }
+
+    public double[] getRowCosine() {
+        return new double[]{direction[0], direction[1], direction[2]};
+    }
+
+    public double[] getColumnCosine() {
+        return new double[]{direction[3], direction[4], direction[5]};
+    }
+
+    public double[] getSliceNormal() {
+        return new double[]{direction[6], direction[7], direction[8]};
+    }
+
+    /**
+     * Set the direction cosines from the DICOM image orientation (patient). The slice axis is the normal on the
+     * image plane.
+     *
+     * @param imageOrientationPatient row direction cosines followed by the column direction cosines
+     */
+    public void setImageOrientationPatient(double[] imageOrientationPatient) {
+        double[] n = Geometry.sliceNormal(imageOrientationPatient);
+        direction = new double[]{
+                imageOrientationPatient[0], imageOrientationPatient[1], imageOrientationPatient[2],
+                imageOrientationPatient[3], imageOrientationPatient[4], imageOrientationPatient[5],
+                n[0], n[1], n[2]
+        };
+    }
+
+    /**
+     * Convert (continuous) voxel indices to physical coordinates.
+     *
+     * @param column column index
+     * @param row    row index
+     * @param slice  slice index
+     * @return Physical coordinates [x, y, z]
+     */
+    public double[] i2c(double column, double row, double slice) {
+        double c = column * spacing[0];
+        double r = row * spacing[1];
+        double s = slice * spacing[2];
+        return new double[]{
+                origin[0] + c * direction[0] + r * direction[3] + s * direction[6],
+                origin[1] + c * direction[1] + r * direction[4] + s * direction[7],
+                origin[2] + c * direction[2] + r * direction[5] + s * direction[8]
+        };
+    }
+
+    /**
+     * Convert physical coordinates to continuous voxel indices. The direction cosines are assumed to be orthonormal.
+     *
+     * @param x x-coordinate
+     * @param y y-coordinate
+     * @param z z-coordinate
+     * @return Continuous indices [column, row, slice]
+     */
+    public double[] c2i(double x, double y, double z) {
+        double dx = x - origin[0];
+        double dy = y - origin[1];
+        double dz = z - origin[2];
+        return new double[]{
+                (dx * direction[0] + dy * direction[1] + dz * direction[2]) / spacing[0],
+                (dx * direction[3] + dy * direction[4] + dz * direction[5]) / spacing[1],
+                (dx * direction[6] + dy * direction[7] + dz * direction[8]) / spacing[2]
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "Volume3D(columns=" + columns + ", rows=" + rows + ", slices=" + slices
+                + ", frameOfReferenceUID=" + frameOfReferenceUID
+                + ", origin=" + Arrays.toString(origin)
+                + ", spacing=" + Arrays.toString(spacing)
+                + ", direct=" + voxels.isDirect() + ")";
+    }
+}
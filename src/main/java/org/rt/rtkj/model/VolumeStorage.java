@@ -0,0 +1,15 @@
+package org.rt.rtkj.model;
+
+/**
+ * Location where the voxels of a volume are stored.
+ */
+public enum VolumeStorage {
+    /**
+     * Single float array on the Java heap, limited to 2^31 voxels.
+     */
+    HEAP,
+    /**
+     * Direct buffers outside of the Java heap. Memory is released when the volume is closed.
+     */
+    OFF_HEAP
+}
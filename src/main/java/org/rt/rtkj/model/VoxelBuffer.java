@@ -0,0 +1,54 @@
+package org.rt.rtkj.model;
+
+/**
+ * Storage of the voxel values of a volume, indexed with a long so that volumes larger than 2^31 voxels can be
+ * stored off-heap.
+ */
+public interface VoxelBuffer extends AutoCloseable {
+
+    long size();
+
+    float get(long index);
+
+    void set(long index, float value);
+
+    /**
+     * Copy consecutive voxel values into an array.
+     *
+     * @param index  index of the first voxel
+     * @param dst    destination array
+     * @param offset offset in the destination array
+     * @param length number of voxels to copy
+     */
+    void get(long index, float[] dst, int offset, int length);
+
+    /**
+     * Copy values from an array into consecutive voxels.
+     *
+     * @param index  index of the first voxel
+     * @param src    source array
+     * @param offset offset in the source array
+     * @param length number of voxels to copy
+     */
+    void put(long index, float[] src, int offset, int length);
+
+    void fill(float value);
+
+    /**
+     * @return True if the voxels are stored outside of the Java heap.
+     */
+    boolean isDirect();
+
+    /**
+     * Release the memory of the buffer. The buffer can't be accessed afterwards.
+     */
+    @Override
+    void close();
+
+    static VoxelBuffer allocate(long size, VolumeStorage storage) {
+        if (storage == VolumeStorage.OFF_HEAP) return new DirectVoxelBuffer(size);
+        if (size > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Volume is too large to be stored on the heap: " + size + " voxels");
+        return new HeapVoxelBuffer((int) size);
+    }
+}
@@ -0,0 +1,53 @@
+package org.rt.rtkj.utils;
+
+public class Geometry {
+
+    /**
+     * Cross product of two 3D vectors.
+     *
+     * @param a first vector
+     * @param b second vector
+     * @return a x b
+     */
+    public static double[] cross(double[] a, double[] b) {
+        return new double[]{
+                a[1] * b[2] - a[2] * b[1],
+                a[2] * b[0] - a[0] * b[2],
+                a[0] * b[1] - a[1] * b[0]
+        };
+    }
+
+    /**
+     * Dot product of two 3D vectors.
+     *
+     * @param a first vector
+     * @param b second vector
+     * @return a . b
+     */
+    public static double dot(double[] a, double[] b) {
+        return a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+    }
+
+    /**
+     * Normal of an image plane, the cross product of the row and column direction cosines.
+     *
+     * @param imageOrientationPatient row direction cosines followed by the column direction cosines
+     * @return Slice normal
+     */
+    public static double[] sliceNormal(double[] imageOrientationPatient) {
+        double[] row = {imageOrientationPatient[0], imageOrientationPatient[1], imageOrientationPatient[2]};
+        double[] col = {imageOrientationPatient[3], imageOrientationPatient[4], imageOrientationPatient[5]};
+        return cross(row, col);
+    }
+
+    /**
+     * Position of a slice along the slice normal.
+     *
+     * @param imagePositionPatient    position of the first voxel of the slice
+     * @param imageOrientationPatient row direction cosines followed by the column direction cosines
+     * @return Projection of the image position on the slice normal
+     */
+    public static double slicePosition(double[] imagePositionPatient, double[] imageOrientationPatient) {
+        return dot(imagePositionPatient, sliceNormal(imageOrientationPatient));
+    }
+}
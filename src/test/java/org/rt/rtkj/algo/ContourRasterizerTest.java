@@ -0,0 +1,108 @@
+package org.rt.rtkj.algo;
+
+import org.junit.jupiter.api.Test;
+import org.rt.rtkj.dicom.*;
+import org.rt.rtkj.model.MaskStorage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContourRasterizerTest {
+
+    @Test
+    void mask() {
+        var grid = GridGeometry.of(DicomFixtures.dose(10, 10, 3, 0.01, 0)).orElseThrow();
+        // columns 2..5, rows 2..4 with a hole at column 4, row 3 on the second frame
+        var roi = DicomFixtures.roi(1,
+                DicomFixtures.square(-8.5, -17, -4.5, -11, -30),
+                DicomFixtures.square(-8.5, -17, -4.5, -11, -27),
+                DicomFixtures.square(-6.5, -15, -5.5, -13, -27));
+        boolean[] mask = ContourRasterizer.mask(roi, grid);
+        int count = 0;
+        for (int k = 0; k < 3; k++) {
+            for (int r = 0; r < 10; r++) {
+                for (int c = 0; c < 10; c++) {
+                    boolean expected = k < 2 && c >= 2 && c <= 5 && r >= 2 && r <= 4 && !(k == 1 && c == 4 && r == 3);
+                    assertEquals(expected, mask[(k * 10 + r) * 10 + c], String.format("voxel [%d, %d, %d]", c, r, k));
+                    if (mask[(k * 10 + r) * 10 + c]) count++;
+                }
+            }
+        }
+        assertEquals(23, count);
+    }
+
+    @Test
+    void masks() {
+        var grid = GridGeometry.of(DicomFixtures.dose(10, 10, 3, 0.01, 0)).orElseThrow();
+        var roi = DicomFixtures.roi(1, DicomFixtures.square(-8.5, -17, -4.5, -11, -24));
+        boolean[][] masks = ContourRasterizer.masks(roi, grid);
+        assertEquals(3, masks.length);
+        assertNull(masks[0]);
+        assertNull(masks[1]);
+        assertEquals(100, masks[2].length);
+        assertTrue(masks[2][2 * 10 + 2]);
+        assertFalse(masks[2][2 * 10 + 6]);
+    }
+
+    @Test
+    void masksGap() {
+        var grid = GridGeometry.of(DicomFixtures.dose(10, 10, 11, 0.01, 0)).orElseThrow();
+        // two parts contoured on a single slice each, 30 mm apart
+        var nodes = DicomFixtures.roi(1,
+                DicomFixtures.square(-8.5, -17, -4.5, -11, -30),
+                DicomFixtures.square(-8.5, -17, -4.5, -11, 0));
+        boolean[][] masks = ContourRasterizer.masks(nodes, grid);
+        for (int k = 0; k < 11; k++) assertEquals(k == 0 || k == 10, masks[k] != null, "frame " + k);
+        // two parts contoured on 3 mm slices with a gap in between
+        var parts = DicomFixtures.roi(2,
+                DicomFixtures.square(-8.5, -17, -4.5, -11, -30),
+                DicomFixtures.square(-8.5, -17, -4.5, -11, -27),
+                DicomFixtures.square(-8.5, -17, -4.5, -11, -6),
+                DicomFixtures.square(-8.5, -17, -4.5, -11, -3));
+        masks = ContourRasterizer.masks(parts, grid);
+        for (int k = 0; k < 11; k++) {
+            assertEquals(k == 0 || k == 1 || k == 8 || k == 9, masks[k] != null, "frame " + k);
+        }
+    }
+
+    @Test
+    void compactMasks() {
+        var grid = GridGeometry.of(DicomFixtures.dose(10, 10, 3, 0.01, 0)).orElseThrow();
+        var structureSet = new RTStructureSet();
+        structureSet.getRoiContourSequence().add(DicomFixtures.roi(3,
+                DicomFixtures.square(-8.5, -17, -4.5, -11, -30),
+                DicomFixtures.square(-8.5, -17, -4.5, -11, -27),
+                DicomFixtures.square(-6.5, -15, -5.5, -13, -27)));
+        boolean[] expected = ContourRasterizer.mask(structureSet.getRoiContourSequence().get(0), grid);
+        for (MaskStorage storage : MaskStorage.values()) {
+            var masks = ContourRasterizer.masks(structureSet, grid, storage);
+            var mask = masks.get(3).orElseThrow();
+            assertEquals(storage, mask.getStorage());
+            assertEquals(23, mask.count());
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i], mask.get(i % 10, (i / 10) % 10, i / 100));
+            }
+        }
+    }
+
+    @Test
+    void weights() {
+        var grid = GridGeometry.of(DicomFixtures.dose(10, 10, 1, 0.01, 0)).orElseThrow();
+        // edges through the centers of columns 2 and 5 and rows 2 and 4
+        var roi = DicomFixtures.roi(1, DicomFixtures.square(-8, -16, -5, -12, -30));
+        float[][] weights = ContourRasterizer.weights(roi, grid, 4);
+        assertEquals(1, weights.length);
+        float[] w = weights[0];
+        double[] columnWeights = {0, 0, 0.5, 1, 1, 0.5, 0, 0, 0, 0};
+        double[] rowWeights = {0, 0, 0.5, 1, 0.5, 0, 0, 0, 0, 0};
+        double total = 0.0;
+        for (int r = 0; r < 10; r++) {
+            for (int c = 0; c < 10; c++) {
+                assertEquals(columnWeights[c] * rowWeights[r], w[r * 10 + c], 1e-6,
+                        String.format("voxel [%d, %d]", c, r));
+                total += w[r * 10 + c];
+            }
+        }
+        assertEquals(6.0, total, 1e-5);
+        assertThrows(IllegalArgumentException.class, () -> ContourRasterizer.weights(roi, grid, 0));
+    }
+}
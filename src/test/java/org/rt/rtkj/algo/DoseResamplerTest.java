@@ -0,0 +1,105 @@
+package org.rt.rtkj.algo;
+
+import org.junit.jupiter.api.Test;
+import org.rt.rtkj.dicom.CT3d;
+import org.rt.rtkj.dicom.DicomFixtures;
+import org.rt.rtkj.dicom.RTDose;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DoseResamplerTest {
+
+    /**
+     * Dose of the synthetic grid from {@link DicomFixtures#dose(int, int, int, double, int)} at a position inside the grid. The stored values
+     * increase linearly with the voxel index, so trilinear interpolation is exact.
+     */
+    private static double expected(double scaling, int value, double[] p) {
+        double c = p[0] + 10;
+        double r = (p[1] + 20) / 2;
+        double k = (p[2] + 30) / 3;
+        return scaling * (value + c + 4 * r + 12 * k);
+    }
+
+    private static GridGeometry target(double[] ipp, double[] iop, double[] spacing, double[] offsets, int columns,
+                                       int rows) {
+        GridGeometry geometry = new GridGeometry();
+        geometry.setColumns(columns);
+        geometry.setRows(rows);
+        geometry.setFrames(offsets.length);
+        geometry.setImagePositionPatient(ipp);
+        geometry.setImageOrientationPatient(iop);
+        geometry.setPixelSpacing(spacing);
+        geometry.setFrameOffsets(offsets);
+        return geometry;
+    }
+
+    private static void assertResampled(RTDose result, GridGeometry target, double scaling, int value) {
+        assertEquals(target.size(), result.getPixelBuffer().size());
+        for (int k = 0; k < target.getFrames(); k++) {
+            for (int r = 0; r < target.getRows(); r++) {
+                for (int c = 0; c < target.getColumns(); c++) {
+                    double[] p = target.position(c, r, k);
+                    boolean inside = p[0] >= -10 && p[0] <= -7 && p[1] >= -20 && p[1] <= -16 && p[2] >= -30 && p[2] <= -27;
+                    double dose = result.getDose((k * target.getRows() + r) * target.getColumns() + c);
+                    assertEquals(inside ? expected(scaling, value, p) : 0.0, dose, result.getDoseGridScaling(),
+                            String.format("voxel [%d, %d, %d]", c, r, k));
+                }
+            }
+        }
+    }
+
+    @Test
+    void resampleAligned() {
+        var dose = DicomFixtures.dose(4, 3, 2, 0.001, 100);
+        var target = target(new double[]{-10.5, -20, -30}, new double[]{1, 0, 0, 0, 1, 0},
+                new double[]{0.5, 0.5}, new double[]{0, 1, 2, 3, 4}, 9, 9);
+        var optResult = DoseResampler.resample(dose, target);
+        assertTrue(optResult.isPresent());
+        var result = optResult.get();
+        assertNotEquals(dose.getSopInstanceUID(), result.getSopInstanceUID());
+        assertEquals(9, result.getColumns());
+        assertEquals(9, result.getRows());
+        assertEquals(5, result.getNumberOfFrames());
+        assertArrayEquals(new double[]{0, 1, 2, 3, 4}, result.getGridFrameOffsetVector());
+        assertResampled(result, target, 0.001, 100);
+    }
+
+    @Test
+    void resampleRotated() {
+        var dose = DicomFixtures.dose(4, 3, 2, 0.001, 100);
+        // rows along x, columns along y, normal along -z
+        var target = target(new double[]{-10, -20, -27}, new double[]{0, 1, 0, 1, 0, 0},
+                new double[]{1, 1}, new double[]{0, 1.5, 3}, 5, 4);
+        var optResult = DoseResampler.resample(dose, target);
+        assertTrue(optResult.isPresent());
+        assertResampled(optResult.get(), target, 0.001, 100);
+    }
+
+    @Test
+    void resampleCT() {
+        var dose = DicomFixtures.dose(4, 3, 2, 0.001, 100);
+        CT3d ct = new CT3d();
+        double[] heights = {-28, -31, -26, -30, -27, -29};
+        for (int i = 0; i < heights.length; i++) {
+            var slice = DicomFixtures.ct("1", "1." + i, heights[i]);
+            slice.setImagePositionPatient(new double[]{-10.5, -20.5, heights[i]});
+            slice.setColumns(5);
+            slice.setRows(6);
+            assertTrue(ct.add(slice));
+        }
+        var optResult = DoseResampler.resample(dose, ct);
+        assertTrue(optResult.isPresent());
+        var result = optResult.get();
+        assertArrayEquals(new double[]{-10.5, -20.5, -31}, result.getImagePositionPatient());
+        assertArrayEquals(new double[]{0, 1, 2, 3, 4, 5}, result.getGridFrameOffsetVector());
+        assertResampled(result, GridGeometry.of(ct).orElseThrow(), 0.001, 100);
+    }
+
+    @Test
+    void resampleInvalidOffsets() {
+        var dose = DicomFixtures.dose(4, 3, 3, 0.001, 100);
+        dose.setGridFrameOffsetVector(new double[]{0, 3, 3});
+        var target = GridGeometry.of(DicomFixtures.dose(4, 3, 3, 0.001, 100)).orElseThrow();
+        assertTrue(DoseResampler.resample(dose, target).isEmpty());
+    }
+}
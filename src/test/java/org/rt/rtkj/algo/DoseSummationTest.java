@@ -0,0 +1,38 @@
+package org.rt.rtkj.algo;
+
+import org.junit.jupiter.api.Test;
+import org.rt.rtkj.dicom.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DoseSummationTest {
+
+    @Test
+    void sum() {
+        var a = DicomFixtures.dose(4, 3, 2, 0.001, 100);
+        var b = DicomFixtures.dose(4, 3, 2, 0.002, 200);
+        var optSum = DoseSummation.sum(List.of(a, b));
+        assertTrue(optSum.isPresent());
+        var sum = optSum.get();
+        assertEquals(24, sum.getPixelBuffer().size());
+        assertNotEquals(a.getSopInstanceUID(), sum.getSopInstanceUID());
+        assertEquals("BEAM", sum.getDoseSummationType());
+        for (int i = 0; i < 24; i++) {
+            double expected = (100 + i) * 0.001 + (200 + i) * 0.002;
+            assertEquals(expected, sum.getDose(i), sum.getDoseGridScaling());
+        }
+        assertEquals(0xFFFFFFFFL, sum.getPixelBuffer().get(23));
+    }
+
+    @Test
+    void sumDifferentGeometry() {
+        var a = DicomFixtures.dose(4, 3, 2, 0.001, 100);
+        var b = DicomFixtures.dose(4, 3, 2, 0.001, 100);
+        b.setImagePositionPatient(new double[]{-10, -20, -29});
+        assertTrue(DoseSummation.sum(List.of(a, b)).isEmpty());
+        var c = DicomFixtures.dose(4, 3, 3, 0.001, 100);
+        assertTrue(DoseSummation.sum(List.of(a, c)).isEmpty());
+    }
+}
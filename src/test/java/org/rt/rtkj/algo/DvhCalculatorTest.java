@@ -0,0 +1,44 @@
+package org.rt.rtkj.algo;
+
+import org.junit.jupiter.api.Test;
+import org.rt.rtkj.dicom.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DvhCalculatorTest {
+
+    @Test
+    void compute() {
+        var dose = DicomFixtures.dose(10, 10, 3, 0.01, 0);
+        var roi = DicomFixtures.roi(7,
+                DicomFixtures.square(-8.5, -17, -4.5, -11, -30),
+                DicomFixtures.square(-8.5, -17, -4.5, -11, -27),
+                DicomFixtures.square(-8.5, -17, -4.5, -11, -24));
+        var structureSet = new RTStructureSet();
+        structureSet.getRoiContourSequence().add(roi);
+        structureSet.getRoiContourSequence().add(DicomFixtures.roi(8, DicomFixtures.square(100, 100, 110, 110, -27)));
+
+        List<DvhItem> items = DvhCalculator.compute(dose, structureSet, 0.1, DvhType.CUMULATIVE);
+        assertEquals(1, items.size());
+        DvhItem item = items.get(0);
+        assertEquals("CUMULATIVE", item.getDvhType());
+        assertEquals("CM3", item.getDvhVolumeUnits());
+        assertEquals(7, item.getDvhReferencedROISequence().get(0).getReferencedROINumber());
+        assertEquals(0.22, item.getDvhMinimumDose(), 1e-6);
+        assertEquals(2.45, item.getDvhMaximumDose(), 1e-6);
+        assertEquals(1.335, item.getDvhMeanDose(), 1e-6);
+        double[] data = item.getDvhData();
+        assertEquals(2 * item.getDvhNumberOfBins(), data.length);
+        // 36 voxels of 1 x 2 x 3 mm
+        assertEquals(0.216, data[1], 1e-9);
+        for (int i = 3; i < data.length; i += 2) assertTrue(data[i] <= data[i - 2]);
+        assertTrue(data[data.length - 1] > 0.0);
+
+        var differential = DvhCalculator.compute(dose, roi, 0.1, DvhType.DIFFERENTIAL).orElseThrow();
+        double total = 0.0;
+        for (int i = 1; i < differential.getDvhData().length; i += 2) total += differential.getDvhData()[i];
+        assertEquals(0.216, total, 1e-9);
+    }
+}
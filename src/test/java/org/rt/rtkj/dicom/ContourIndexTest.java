@@ -0,0 +1,76 @@
+package org.rt.rtkj.dicom;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContourIndexTest {
+
+    private static RTStructureSet structureSet() {
+        RTStructureSet ss = new RTStructureSet();
+        // ROI 1: 20 x 20 mm square with a 4 x 4 mm hole on z = 0 and z = 2
+        ss.getRoiContourSequence().add(DicomFixtures.roi(1,
+                DicomFixtures.square(0, 0, 20, 20, 0), DicomFixtures.square(8, 8, 12, 12, 0),
+                DicomFixtures.square(0, 0, 20, 20, 2)));
+        // ROI 2: overlaps ROI 1 on z = 2 only
+        ss.getRoiContourSequence().add(DicomFixtures.roi(2, DicomFixtures.square(15, 15, 30, 30, 2)));
+        return ss;
+    }
+
+    @Test
+    void find() {
+        var index = structureSet().getContourIndex();
+        assertEquals(2, index.size());
+        assertEquals(List.of(1), index.find(5, 5, 0));
+        assertEquals(List.of(1), index.find(5, 5, 0.9));
+        assertEquals(List.of(), index.find(10, 10, 0));
+        assertEquals(List.of(1), index.find(10, 10, 2));
+        assertEquals(List.of(1, 2), index.find(18, 18, 2));
+        assertEquals(List.of(2), index.find(25, 25, 2.5));
+        assertEquals(List.of(), index.find(25, 25, 0));
+        assertEquals(List.of(), index.find(5, 5, 4));
+        assertTrue(index.contains(2, 25, 25, 2));
+        assertFalse(index.contains(1, 10, 10, 0));
+    }
+
+    @Test
+    void findBox() {
+        var index = structureSet().getContourIndex();
+        assertEquals(List.of(1), index.find(new double[]{-5, -5, -1}, new double[]{1, 1, 1}));
+        assertEquals(List.of(1, 2), index.find(new double[]{19, 19, -1}, new double[]{40, 40, 3}));
+        // ROI 2 covers the slab from z = 1 to z = 3
+        assertEquals(List.of(), index.find(new double[]{21, 21, -1}, new double[]{40, 40, 0.9}));
+        assertEquals(List.of(2), index.find(new double[]{21, 21, -1}, new double[]{40, 40, 1}));
+    }
+
+    @Test
+    void interleaved() {
+        RTStructureSet ss = new RTStructureSet();
+        // ROI 1 is contoured on z = 0 and z = 4 only, ROI 2 on z = 2 in between
+        ss.getRoiContourSequence().add(DicomFixtures.roi(1,
+                DicomFixtures.square(0, 0, 10, 10, 0), DicomFixtures.square(0, 0, 10, 10, 4)));
+        ss.getRoiContourSequence().add(DicomFixtures.roi(2, DicomFixtures.square(20, 20, 30, 30, 2)));
+        var index = ss.getContourIndex();
+        assertEquals(3, index.size());
+        assertEquals(List.of(1), index.find(5, 5, 2));
+        assertEquals(List.of(1), index.find(5, 5, 3.5));
+        assertTrue(index.contains(1, 5, 5, 2));
+        assertEquals(List.of(2), index.find(25, 25, 2.9));
+        assertEquals(List.of(), index.find(25, 25, 3.1));
+        assertEquals(List.of(), index.find(5, 5, 5.1));
+        assertEquals(List.of(1), index.find(new double[]{4, 4, 1.5}, new double[]{6, 6, 2.5}));
+        assertEquals(List.of(1, 2), index.find(new double[]{4, 4, 1.5}, new double[]{25, 25, 2.5}));
+    }
+
+    @Test
+    void rebuild() {
+        var ss = structureSet();
+        var index = ss.getContourIndex();
+        assertSame(index, ss.getContourIndex());
+        ss.getRoiContourSequence().add(DicomFixtures.roi(3, DicomFixtures.square(100, 100, 110, 110, 0)));
+        assertEquals(List.of(), ss.getContourIndex().find(105, 105, 0));
+        assertEquals(List.of(3), ss.rebuildContourIndex().find(105, 105, 0));
+    }
+}
@@ -1,12 +1,21 @@
 package org.rt.rtkj.dicom;
 
 import lombok.extern.log4j.Log4j2;
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.UID;
+import org.dcm4che3.data.VR;
+import org.dcm4che3.io.DicomOutputStream;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.rt.rtkj.ResourceFactory;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -65,6 +74,43 @@ class DicomFactoryTest {
         });
     }
 
+    @Test
+    void readManyAsync() throws IOException, DicomException {
+        var resourceDirectory = ResourceFactory.getInstance().getDicomPath();
+        var dir = Path.of(resourceDirectory.toAbsolutePath().toString(), "carpet", "ct3");
+        var listDcm = Files.list(dir).filter(path -> path.toString().endsWith(".dcm") && !path.getFileName().toString().startsWith("RP")).collect(Collectors.toList());
+        listDcm = listDcm.subList(listDcm.size() - 30, listDcm.size());
+        var ldoj = DicomFactory.readAsync(listDcm).join();
+        assertEquals(listDcm.size(), ldoj.size());
+        for (int i = 0; i < listDcm.size(); i++) {
+            var doj = ldoj.get(i);
+            assertTrue(doj.getErrors().isEmpty());
+            assertEquals(listDcm.get(i).toFile().getAbsolutePath(), doj.getPathname());
+            assertEquals(DicomFactory.read(listDcm.get(i)).getCt(), doj.getCt());
+        }
+    }
+
+    @Test
+    void scanMany() throws IOException, DicomException {
+        var resourceDirectory = ResourceFactory.getInstance().getDicomPath();
+        var dir = Path.of(resourceDirectory.toAbsolutePath().toString(), "carpet", "ct3");
+        var listDcm = Files.list(dir).filter(path -> path.toString().endsWith(".dcm") && !path.getFileName().toString().startsWith("RP")).map(path -> path.toAbsolutePath().toString()).collect(Collectors.toList());
+        listDcm = listDcm.subList(listDcm.size() - 30, listDcm.size());
+        var headers = DicomFactory.scan(listDcm);
+        assertEquals(listDcm.size(), headers.size());
+        for (DicomHeader header : headers) {
+            var doj = DicomFactory.read(header.getPathname());
+            if (doj.hasCT()) {
+                var ct = doj.getCt().get();
+                assertEquals(Modality.CT, header.getModality());
+                assertEquals(ct.getSOPInstanceUID(), header.getSopInstanceUID());
+                assertEquals(ct.getStudyInstanceUID(), header.getStudyInstanceUID());
+                assertEquals(ct.getSeriesInstanceUID(), header.getSeriesInstanceUID());
+                assertEquals(ct.getFrameOfReferenceUID(), header.getFrameOfReferenceUID());
+            }
+        }
+    }
+
     @Test
     public void writeRTDose() throws IOException, DicomException {
         var resourceDirectory = ResourceFactory.getInstance().getDicomPath();
@@ -86,4 +132,107 @@ class DicomFactoryTest {
 
         assertEquals(inputDose, checkDose);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void writeRTDoseFileChannel() throws IOException, DicomException {
+        var resourceDirectory = ResourceFactory.getInstance().getDicomPath();
+        var inputFilePath = Path.of(resourceDirectory.toAbsolutePath().toString(), "rtdose.dcm");
+        var outputFilePath = Path.of(ResourceFactory.getTmpDir(), "rtdose_channel.dcm");
+        var optInputDose = DicomFactory.read(inputFilePath).getRtdose();
+        assertTrue(optInputDose.isPresent());
+        var inputDose = optInputDose.get();
+        try (var channel = FileChannel.open(outputFilePath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            assertTrue(Writer.rtdose(inputDose, channel));
+        }
+
+        var optCheckDose = DicomFactory.read(outputFilePath).getRtdose();
+        assertTrue(optCheckDose.isPresent());
+        assertEquals(inputDose.getPixelData(), optCheckDose.get().getPixelData());
+    }
+
+    @Test
+    public void writeRTDoses(@TempDir Path dir) throws IOException, DicomException {
+        var resourceDirectory = ResourceFactory.getInstance().getDicomPath();
+        var inputFilePath = Path.of(resourceDirectory.toAbsolutePath().toString(), "rtdose.dcm");
+        var optInputDose = DicomFactory.read(inputFilePath).getRtdose();
+        assertTrue(optInputDose.isPresent());
+        var inputDose = optInputDose.get();
+
+        var results = DicomFactory.write(List.of(inputDose, new RTDose()), dir);
+        assertEquals(2, results.size());
+        assertFalse(results.get(0).hasError());
+        assertEquals(dir.resolve("RD" + inputDose.getSopInstanceUID() + ".dcm"), results.get(0).getPath());
+        assertTrue(results.get(1).hasError());
+        try (var files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+
+        var optCheckDose = DicomFactory.read(results.get(0).getPath()).getRtdose();
+        assertTrue(optCheckDose.isPresent());
+        assertEquals(inputDose, optCheckDose.get());
+    }
+
+    @Test
+    public void writeReadMapped(@TempDir Path dir) throws IOException, DicomException {
+        var inputDose = DicomFixtures.dose(5, 4, 3, "1.2.3.4", 0.001, 1000);
+        var path = dir.resolve("rtdose.dcm");
+        assertTrue(DicomFactory.write(path, inputDose));
+
+        var optCheckDose = DicomFactory.read(path, PixelDataMode.MAPPED).getRtdose();
+        assertTrue(optCheckDose.isPresent());
+        var checkDose = optCheckDose.get();
+        assertTrue(checkDose.getPixelBuffer() instanceof MappedPixelBuffer);
+        assertEquals(inputDose.getPixelBuffer().size(), checkDose.getPixelBuffer().size());
+        for (int i = 0; i < inputDose.getPixelBuffer().size(); i++) {
+            assertEquals(inputDose.getPixelBuffer().get(i), checkDose.getPixelBuffer().get(i));
+        }
+    }
+
+    @Test
+    public void writeRTDosesDuplicateUID(@TempDir Path dir) throws IOException, DicomException {
+        var a = DicomFixtures.dose(4, 3, 2, "1.2.3.1", 0.001, 100);
+        var b = DicomFixtures.dose(4, 3, 2, "1.2.3.2", 0.001, 200);
+        var c = DicomFixtures.dose(4, 3, 2, "1.2.3.1", 0.001, 300);
+
+        var results = DicomFactory.write(List.of(a, b, c), dir);
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).hasError());
+        assertFalse(results.get(1).hasError());
+        assertTrue(results.get(2).hasError());
+        try (var files = Files.list(dir)) {
+            assertEquals(List.of(results.get(1).getPath()), files.collect(Collectors.toList()));
+        }
+
+        var optCheckDose = DicomFactory.read(results.get(1).getPath()).getRtdose();
+        assertTrue(optCheckDose.isPresent());
+        for (int i = 0; i < b.getPixelBuffer().size(); i++) {
+            assertEquals(b.getPixelBuffer().get(i), optCheckDose.get().getPixelBuffer().get(i));
+        }
+    }
+
+    @Test
+    public void scanWithoutFrameOfReference(@TempDir Path dir) throws IOException {
+        var attrs = new Attributes();
+        attrs.setString(Tag.SOPClassUID, VR.UI, UID.RTStructureSetStorage);
+        attrs.setString(Tag.SOPInstanceUID, VR.UI, "1.2.3.4");
+        attrs.setString(Tag.Modality, VR.CS, "RTSTRUCT");
+        attrs.setString(Tag.StudyInstanceUID, VR.UI, "1.2.3");
+        attrs.setString(Tag.SeriesInstanceUID, VR.UI, "1.2.3.5");
+        var path = dir.resolve("rtstruct.dcm");
+        try (var dos = new DicomOutputStream(path.toFile())) {
+            dos.writeDataset(attrs.createFileMetaInformation(UID.ExplicitVRLittleEndian), attrs);
+            // truncated StructureSetROISequence, parsing it would fail at the end of the file
+            dos.writeHeader(Tag.StructureSetROISequence, VR.SQ, 1024);
+            dos.write(new byte[16]);
+        }
+
+        var optHeader = DicomFactory.scan(path);
+        assertTrue(optHeader.isPresent());
+        var header = optHeader.get();
+        assertEquals(Modality.RTSTRUCT, header.getModality());
+        assertEquals("1.2.3.4", header.getSopInstanceUID());
+        assertEquals("1.2.3.5", header.getSeriesInstanceUID());
+        assertEquals("", header.getFrameOfReferenceUID());
+    }
+}
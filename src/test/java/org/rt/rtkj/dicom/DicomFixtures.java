@@ -0,0 +1,122 @@
+package org.rt.rtkj.dicom;
+
+import org.dcm4che3.data.UID;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Synthetic DICOM objects shared by the tests.
+ */
+public class DicomFixtures {
+    /**
+     * Axial CT slice at height z with a 1 mm pixel spacing and no pixel data. All attributes that are compared when
+     * slices are added to a CT3d are set.
+     */
+    public static CT ct(String series, String uid, double z) {
+        CT ct = new CT();
+        ct.setSpecificCharacterSet("");
+        ct.setImageType(List.of("ORIGINAL", "PRIMARY", "AXIAL"));
+        ct.setSOPClassUID(UID.CTImageStorage);
+        ct.setSOPInstanceUID(uid);
+        ct.setAccessionNumber("");
+        ct.setModality(Modality.CT);
+        ct.setManufacturer("");
+        ct.setInstitutionName("");
+        ct.setReferringPhysicianName("");
+        ct.setStationName("");
+        ct.setSeriesDescription("");
+        ct.setInstitutionalDepartmentName("");
+        ct.setManufacturerModelName("");
+        ct.setPatientName("");
+        ct.setPatientID("1");
+        ct.setPatientBirthDate(LocalDate.of(1970, 1, 1));
+        ct.setPatientSex("");
+        ct.setPatientAge("");
+        ct.setPatientIdentityRemoved("");
+        ct.setDeidentificationMethod("");
+        ct.setBodyPartExamined("");
+        ct.setScanOptions("");
+        ct.setDeviceSerialNumber("");
+        ct.setSoftwareVersions("");
+        ct.setProtocolName("");
+        ct.setRotationDirection("");
+        ct.setFocalSpots(new double[]{1.0, 1.0});
+        ct.setConvolutionKernel("");
+        ct.setPatientPosition(PatientPosition.HFS);
+        ct.setExposureModulationType("");
+        ct.setStudyInstanceUID("1.2");
+        ct.setSeriesInstanceUID(series);
+        ct.setStudyID("");
+        ct.setImageOrientationPatient(new double[]{1, 0, 0, 0, 1, 0});
+        ct.setImagePositionPatient(new double[]{0, 0, z});
+        ct.setFrameOfReferenceUID("1.2.3");
+        ct.setPixelSpacing(new double[]{1.0, 1.0});
+        ct.setPixelRepresentation(PixelRepresentation.TWO_COMPLEMENT);
+        return ct;
+    }
+
+    /**
+     * CLOSED_PLANAR axial rectangle from (x0, y0) to (x1, y1) at height z.
+     */
+    public static ContourItem square(double x0, double y0, double x1, double y1, double z) {
+        ContourItem contour = new ContourItem();
+        contour.setContourGeometricType("CLOSED_PLANAR");
+        contour.setNumberOfContourPoints(4);
+        contour.setContourData(new double[]{x0, y0, z, x1, y0, z, x1, y1, z, x0, y1, z});
+        return contour;
+    }
+
+    /**
+     * RTDose on a grid of columns x rows x frames with its origin at (-10, -20, -30), a pixel spacing of 1 mm along x
+     * and 2 mm along y and 3 mm between frames. The stored values are value + voxel index and the SOP instance UID is
+     * 1.2.3.[value]. All attributes required by the Writer are set.
+     */
+    public static RTDose dose(int columns, int rows, int frames, double scaling, int value) {
+        return dose(columns, rows, frames, "1.2.3." + value, scaling, value);
+    }
+
+    /**
+     * Same as {@link #dose(int, int, int, double, int)} with a given SOP instance UID.
+     */
+    public static RTDose dose(int columns, int rows, int frames, String sopInstanceUID, double scaling, int value) {
+        RTDose dose = new RTDose();
+        dose.setModality(Modality.RTDOSE);
+        dose.setSopClassUID(UID.RTDoseStorage);
+        dose.setSopInstanceUID(sopInstanceUID);
+        dose.setStudyDate(LocalDate.of(2020, 1, 1));
+        dose.setStudyTime(LocalTime.of(12, 0));
+        dose.setFrameOfReferenceUID("1.2.3");
+        dose.setColumns(columns);
+        dose.setRows(rows);
+        dose.setNumberOfFrames(frames);
+        dose.setImagePositionPatient(new double[]{-10, -20, -30});
+        dose.setImageOrientationPatient(new double[]{1, 0, 0, 0, 1, 0});
+        dose.setPixelSpacing(new double[]{2, 1});
+        double[] offsets = new double[frames];
+        for (int i = 0; i < frames; i++) offsets[i] = 3.0 * i;
+        dose.setGridFrameOffsetVector(offsets);
+        dose.setDoseUnits("GY");
+        dose.setDoseType("PHYSICAL");
+        dose.setDoseSummationType("BEAM");
+        dose.setSamplesPerPixel(1);
+        dose.setBitsAllocated(32);
+        dose.setBitsStored(32);
+        dose.setHighBit(31);
+        dose.setPixelRepresentation(PixelRepresentation.UNSIGNED);
+        dose.setPhotometricInterpretation(PhotometricInterpretation.MONOCHROME2);
+        dose.setDoseGridScaling(scaling);
+        int[] stored = new int[columns * rows * frames];
+        for (int i = 0; i < stored.length; i++) stored[i] = value + i;
+        dose.setPixelBuffer(new IntPixelBuffer(stored, PixelRepresentation.UNSIGNED));
+        return dose;
+    }
+
+    public static ROIContourItem roi(int number, ContourItem... contours) {
+        ROIContourItem roi = new ROIContourItem();
+        roi.setReferencedROINumber(number);
+        roi.getContourSequence().addAll(List.of(contours));
+        return roi;
+    }
+}
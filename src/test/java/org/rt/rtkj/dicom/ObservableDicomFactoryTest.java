@@ -0,0 +1,107 @@
+package org.rt.rtkj.dicom;
+
+import io.reactivex.rxjava3.core.Flowable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ObservableDicomFactoryTest {
+
+    @Test
+    void walk(@TempDir Path dir) throws IOException {
+        var a = Files.createDirectories(dir.resolve("a"));
+        var b = Files.createDirectories(dir.resolve("a").resolve("b"));
+        Files.createDirectories(dir.resolve("empty"));
+        var f1 = Files.createFile(dir.resolve("f1.dcm"));
+        var f2 = Files.createFile(a.resolve("f2.dcm"));
+        var f3 = Files.createFile(b.resolve("f3.dcm"));
+        var f4 = Files.createFile(b.resolve("f4.dcm"));
+
+        var files = ObservableDicomFactory.walk(dir, 2).toList().blockingGet();
+        var expected = Set.of(f1, f2, f3, f4).stream().map(Path::toString).collect(Collectors.toSet());
+        assertEquals(4, files.size());
+        assertEquals(expected, Set.copyOf(files));
+    }
+
+    /**
+     * Write synthetic RTDose files to a directory and return the doses by pathname.
+     */
+    private static Map<String, RTDose> writeDoses(Path dir, int n) throws IOException {
+        Map<String, RTDose> doses = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            var dose = DicomFixtures.dose(4, 3, 2, "1.2.3." + i, 0.001, 100 * i);
+            var path = dir.resolve("RD" + i + ".dcm");
+            assertTrue(DicomFactory.write(path, dose));
+            doses.put(path.toString(), dose);
+        }
+        return doses;
+    }
+
+    private static void assertSameDose(RTDose expected, DicomObject dicomObject) {
+        assertTrue(dicomObject.getErrors().isEmpty());
+        var optDose = dicomObject.getRtdose();
+        assertTrue(optDose.isPresent());
+        var dose = optDose.get();
+        assertEquals(expected.getSopInstanceUID(), dose.getSopInstanceUID());
+        assertEquals(expected.getPixelBuffer().size(), dose.getPixelBuffer().size());
+        for (int i = 0; i < expected.getPixelBuffer().size(); i++) {
+            assertEquals(expected.getPixelBuffer().get(i), dose.getPixelBuffer().get(i));
+        }
+    }
+
+    @Test
+    void read(@TempDir Path dir) throws IOException {
+        var doses = writeDoses(dir, 5);
+        var objects = ObservableDicomFactory.read(Flowable.fromIterable(doses.keySet()), 2, 2)
+                .toList().blockingGet();
+        assertEquals(doses.size(), objects.size());
+        for (var dicomObject : objects) {
+            assertTrue(doses.containsKey(dicomObject.getPathname()));
+            assertSameDose(doses.get(dicomObject.getPathname()), dicomObject);
+        }
+    }
+
+    @Test
+    void readDirectory(@TempDir Path dir) throws IOException {
+        var doses = writeDoses(Files.createDirectories(dir.resolve("a")), 3);
+        doses.putAll(writeDoses(Files.createDirectories(dir.resolve("b")), 2));
+        List<DicomObject> objects = new ArrayList<>();
+        ObservableDicomFactory.read(dir, objects::add);
+        assertEquals(doses.size(), objects.size());
+        for (var dicomObject : objects) {
+            assertSameDose(doses.get(dicomObject.getPathname()), dicomObject);
+        }
+    }
+
+    @Test
+    void readInvalid(@TempDir Path dir) throws IOException {
+        var doses = writeDoses(dir, 1);
+        var text = Files.writeString(dir.resolve("notes.txt"), "not a DICOM file");
+        var missing = dir.resolve("missing.dcm");
+        List<String> pathnames = new ArrayList<>(doses.keySet());
+        pathnames.add(text.toString());
+        pathnames.add(missing.toString());
+
+        var objects = ObservableDicomFactory.read(pathnames).stream()
+                .collect(Collectors.toMap(DicomObject::getPathname, o -> o));
+        assertEquals(3, objects.size());
+        var entry = doses.entrySet().iterator().next();
+        assertSameDose(entry.getValue(), objects.get(entry.getKey()));
+        for (var pathname : List.of(text.toString(), missing.toString())) {
+            var dicomObject = objects.get(pathname);
+            assertFalse(dicomObject.getErrors().isEmpty());
+            assertFalse(dicomObject.hasRTDose());
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package org.rt.rtkj.dicom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PixelBufferTest {
+
+    @Test
+    void allocate() {
+        var b16 = PixelBuffer.allocate(10, 16, PixelRepresentation.TWO_COMPLEMENT);
+        assertTrue(b16 instanceof ShortPixelBuffer);
+        assertEquals(10, b16.size());
+        assertEquals(16, b16.getBitsAllocated());
+        var b32 = PixelBuffer.allocate(10, 32, PixelRepresentation.UNSIGNED);
+        assertTrue(b32 instanceof IntPixelBuffer);
+        assertEquals(10, b32.size());
+        assertEquals(32, b32.getBitsAllocated());
+        assertThrows(UnsupportedOperationException.class, () -> PixelBuffer.allocate(10, 8, PixelRepresentation.UNSIGNED));
+    }
+
+    @Test
+    void pixelRepresentation() {
+        var signed16 = new ShortPixelBuffer(new short[]{(short) 0xFFFE}, PixelRepresentation.TWO_COMPLEMENT);
+        assertEquals(-2, signed16.get(0));
+        var unsigned16 = new ShortPixelBuffer(new short[]{(short) 0xFFFE}, PixelRepresentation.UNSIGNED);
+        assertEquals(0xFFFE, unsigned16.get(0));
+        var signed32 = new IntPixelBuffer(new int[]{0xFFFFFFFE}, PixelRepresentation.TWO_COMPLEMENT);
+        assertEquals(-2, signed32.get(0));
+        var unsigned32 = new IntPixelBuffer(new int[]{0xFFFFFFFE}, PixelRepresentation.UNSIGNED);
+        assertEquals(0xFFFFFFFEL, unsigned32.get(0));
+    }
+
+    @Test
+    void asList() {
+        var buffer = PixelBuffer.of(List.of(1L, -2L, 3L), 16, PixelRepresentation.TWO_COMPLEMENT);
+        var list = buffer.asList();
+        assertEquals(List.of(1L, -2L, 3L), list);
+        list.set(1, 42L);
+        assertEquals(42, buffer.get(1));
+        assertThrows(UnsupportedOperationException.class, () -> list.add(4L));
+    }
+
+    @Test
+    void rtDosePixelData() {
+        var dose = new RTDose();
+        dose.setBitsAllocated(32);
+        dose.setPixelRepresentation(PixelRepresentation.UNSIGNED);
+        dose.setDoseGridScaling(0.5);
+        dose.setPixelData(List.of(2L, 4L, 0xFFFFFFFFL));
+        assertTrue(dose.getPixelBuffer() instanceof IntPixelBuffer);
+        assertEquals(1.0, dose.getDose(0));
+        assertEquals(2.0, dose.getDose(1));
+        assertEquals(0.5 * 0xFFFFFFFFL, dose.getDose(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> dose.getDose(3));
+    }
+
+    @Test
+    void byteBufferView() {
+        var bytes = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.putShort((short) 1).putShort((short) -2).putShort((short) 0xFFFF).putShort((short) 4);
+        bytes.flip();
+        var signed = new ByteBufferPixelBuffer(bytes, 16, PixelRepresentation.TWO_COMPLEMENT);
+        assertEquals(4, signed.size());
+        assertEquals(-2, signed.get(1));
+        assertEquals(-1, signed.get(2));
+        var unsigned = new ByteBufferPixelBuffer(bytes, 16, PixelRepresentation.UNSIGNED);
+        assertEquals(0xFFFF, unsigned.get(2));
+        unsigned.set(3, 7);
+        assertEquals(7, bytes.getShort(6));
+        assertEquals(4, signed.asShortBuffer().remaining());
+
+        var ints = new ByteBufferPixelBuffer(bytes, 32, PixelRepresentation.UNSIGNED);
+        assertEquals(2, ints.size());
+        assertEquals(0xFFFE0001L, ints.get(0));
+        assertEquals(0, ints.asShortBuffer().remaining());
+    }
+
+    @Test
+    void mapped(@TempDir Path dir) throws IOException {
+        var bytes = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.putInt(0xCAFEBABE).putInt(5).putInt(-6);
+        var file = dir.resolve("pixels.raw");
+        Files.write(file, bytes.array());
+
+        var buffer = new MappedPixelBuffer(file, 4, 8, 32, PixelRepresentation.TWO_COMPLEMENT, ByteOrder.LITTLE_ENDIAN);
+        assertEquals(2, buffer.size());
+        assertFalse(buffer.isMapped());
+        assertEquals(5, buffer.get(0));
+        assertEquals(-6, buffer.get(1));
+        assertTrue(buffer.isMapped());
+        assertThrows(ReadOnlyBufferException.class, () -> buffer.set(0, 9));
+    }
+
+    @Test
+    void rescale() {
+        var signed16 = new ShortPixelBuffer(new short[]{-1024, 0, 3071}, PixelRepresentation.TWO_COMPLEMENT);
+        assertArrayEquals(new float[]{-2048, -1024, 2047}, PixelDecoder.rescale(signed16, 1.0, -1024.0));
+        var unsigned16 = new ShortPixelBuffer(new short[]{(short) 0xFFFE, 4}, PixelRepresentation.UNSIGNED);
+        assertArrayEquals(new float[]{0xFFFE * 0.5f, 2}, PixelDecoder.rescale(unsigned16, 0.5, 0.0));
+        var unsigned32 = new IntPixelBuffer(new int[]{0xFFFFFFFE, 10}, PixelRepresentation.UNSIGNED);
+        double[] dst = new double[3];
+        PixelDecoder.rescale(unsigned32, 2.0, 1.0, dst, 1);
+        assertArrayEquals(new double[]{0, 0xFFFFFFFEL * 2.0 + 1.0, 21}, dst);
+        assertThrows(IndexOutOfBoundsException.class, () -> PixelDecoder.rescale(unsigned32, 1.0, 0.0, new double[2], 1));
+    }
+
+    @Test
+    void decode() {
+        int n = 5000;
+        var bytes = ByteBuffer.allocate(2 * n).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < n; i++) bytes.putShort((short) (i - 2500));
+        float[] values = PixelDecoder.decode(bytes.array(), 0, 2 * n, 16, PixelRepresentation.TWO_COMPLEMENT,
+                ByteOrder.LITTLE_ENDIAN, 2.0, 10.0);
+        assertEquals(n, values.length);
+        for (int i = 0; i < n; i++) assertEquals((i - 2500) * 2.0f + 10.0f, values[i]);
+
+        var ints = ByteBuffer.allocate(4 * 3).order(ByteOrder.BIG_ENDIAN);
+        ints.putInt(-5).putInt(0).putInt(7);
+        var view = new ByteBufferPixelBuffer(ints.rewind(), 32, PixelRepresentation.TWO_COMPLEMENT);
+        double[] dst = new double[3];
+        PixelDecoder.rescale(view, 1.0, 0.0, dst, 0);
+        assertArrayEquals(new double[]{-5, 0, 7}, dst);
+    }
+}
@@ -128,129 +128,49 @@ public class RTStructureSetTest {
         expContourItem.setContourGeometricType("CLOSED_PLANAR");
         expContourItem.setNumberOfContourPoints(4);
         expContourItem.setContourNumber(0);
-        expContourItem.getContourData().add(-10.63135);
-        expContourItem.getContourData().add(-5.951199);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(-11.47545);
-        expContourItem.getContourData().add(-4.770328);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(-12.06245);
-        expContourItem.getContourData().add(-3.736268);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(-12.68112);
-        expContourItem.getContourData().add(-2.245236);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(-13.07751);
-        expContourItem.getContourData().add(-0.6208908);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(-13.18278);
-        expContourItem.getContourData().add(1.30117);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(-13.04892);
-        expContourItem.getContourData().add(2.799099);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(-12.60062);
-        expContourItem.getContourData().add(4.606259);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(-11.59987);
-        expContourItem.getContourData().add(6.659985);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(-10.41402);
-        expContourItem.getContourData().add(8.291614);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(-9.385978);
-        expContourItem.getContourData().add(9.299986);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(-7.935406);
-        expContourItem.getContourData().add(10.37506);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(-6.008111);
-        expContourItem.getContourData().add(11.31731);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(-3.722468);
-        expContourItem.getContourData().add(11.86599);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(-2.037528);
-        expContourItem.getContourData().add(11.94271);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(-0.6581482);
-        expContourItem.getContourData().add(11.86544);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(1.555591);
-        expContourItem.getContourData().add(11.3264);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(2.979898);
-        expContourItem.getContourData().add(10.63934);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(4.33293);
-        expContourItem.getContourData().add(9.785913);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(5.091006);
-        expContourItem.getContourData().add(9.173659);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(5.992604);
-        expContourItem.getContourData().add(8.278795);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(7.162805);
-        expContourItem.getContourData().add(6.673681);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(8.170412);
-        expContourItem.getContourData().add(4.580839);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(8.605498);
-        expContourItem.getContourData().add(2.81587);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(8.751563);
-        expContourItem.getContourData().add(1.026244);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(8.653608);
-        expContourItem.getContourData().add(-0.5564451);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(8.089637);
-        expContourItem.getContourData().add(-2.734057);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(7.631644);
-        expContourItem.getContourData().add(-3.732856);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(6.457397);
-        expContourItem.getContourData().add(-5.623788);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(5.717219);
-        expContourItem.getContourData().add(-6.500515);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(3.967777);
-        expContourItem.getContourData().add(-8.012704);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(3.369239);
-        expContourItem.getContourData().add(-8.415419);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(2.235971);
-        expContourItem.getContourData().add(-8.937058);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(0.8176045);
-        expContourItem.getContourData().add(-9.475734);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(-0.896889);
-        expContourItem.getContourData().add(-9.822879);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(-2.108072);
-        expContourItem.getContourData().add(-9.957109);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(-3.590453);
-        expContourItem.getContourData().add(-9.810884);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(-5.217731);
-        expContourItem.getContourData().add(-9.483482);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(-6.615079);
-        expContourItem.getContourData().add(-8.957241);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(-7.796721);
-        expContourItem.getContourData().add(-8.418862);
-        expContourItem.getContourData().add(-12.0);
-        expContourItem.getContourData().add(-9.393643);
-        expContourItem.getContourData().add(-7.224891);
-        expContourItem.getContourData().add(-12.0);
+        expContourItem.setContourData(new double[]{
+                -10.63135, -5.951199, -12.0,
+                -11.47545, -4.770328, -12.0,
+                -12.06245, -3.736268, -12.0,
+                -12.68112, -2.245236, -12.0,
+                -13.07751, -0.6208908, -12.0,
+                -13.18278, 1.30117, -12.0,
+                -13.04892, 2.799099, -12.0,
+                -12.60062, 4.606259, -12.0,
+                -11.59987, 6.659985, -12.0,
+                -10.41402, 8.291614, -12.0,
+                -9.385978, 9.299986, -12.0,
+                -7.935406, 10.37506, -12.0,
+                -6.008111, 11.31731, -12.0,
+                -3.722468, 11.86599, -12.0,
+                -2.037528, 11.94271, -12.0,
+                -0.6581482, 11.86544, -12.0,
+                1.555591, 11.3264, -12.0,
+                2.979898, 10.63934, -12.0,
+                4.33293, 9.785913, -12.0,
+                5.091006, 9.173659, -12.0,
+                5.992604, 8.278795, -12.0,
+                7.162805, 6.673681, -12.0,
+                8.170412, 4.580839, -12.0,
+                8.605498, 2.81587, -12.0,
+                8.751563, 1.026244, -12.0,
+                8.653608, -0.5564451, -12.0,
+                8.089637, -2.734057, -12.0,
+                7.631644, -3.732856, -12.0,
+                6.457397, -5.623788, -12.0,
+                5.717219, -6.500515, -12.0,
+                3.967777, -8.012704, -12.0,
+                3.369239, -8.415419, -12.0,
+                2.235971, -8.937058, -12.0,
+                0.8176045, -9.475734, -12.0,
+                -0.896889, -9.822879, -12.0,
+                -2.108072, -9.957109, -12.0,
+                -3.590453, -9.810884, -12.0,
+                -5.217731, -9.483482, -12.0,
+                -6.615079, -8.957241, -12.0,
+                -7.796721, -8.418862, -12.0,
+                -9.393643, -7.224891, -12.0
+        });
         boolean found = false;
         for (var ci : contourSequence) {
             if (ci.getContourNumber() == 0 && ci.getNumberOfContourPoints() == 41 &&
@@ -258,12 +178,12 @@ public class RTStructureSetTest {
                     ci.getContourImageSequence().contains(expContourImageItem)) {
 //                found = true;
                 if (!found) {
-                    if (ci.getContourData().size() == expContourItem.getContourData().size()) {
-                        var n = ci.getContourData().size();
+                    if (ci.getContourData().length == expContourItem.getContourData().length) {
+                        var n = ci.getContourData().length;
                         boolean b = true;
                         for (int i = 0; i < n; i++) {
-                            long x = (long) (expContourItem.getContourData().get(i) * 100000);
-                            long y = (long) (ci.getContourData().get(i) * 100000);
+                            long x = (long) (expContourItem.getContourData()[i] * 100000);
+                            long y = (long) (ci.getContourData()[i] * 100000);
                             if (x != y) {
                                 b = false;
                             }
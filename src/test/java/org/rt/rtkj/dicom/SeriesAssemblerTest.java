@@ -0,0 +1,146 @@
+package org.rt.rtkj.dicom;
+
+import io.reactivex.rxjava3.core.Flowable;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeriesAssemblerTest {
+    @Test
+    void expectedCount() {
+        List<AssembledSeries> out = new ArrayList<>();
+        var assembler = new SeriesAssembler(out::add, 0, TimeUnit.MILLISECONDS).expect("1", 3);
+        assembler.add(DicomFixtures.ct("1", "1.1", 2.0));
+        assembler.add(DicomFixtures.ct("2", "2.1", 0.0));
+        assembler.add(DicomFixtures.ct("1", "1.2", 0.0));
+        assertTrue(out.isEmpty());
+        assembler.add(DicomFixtures.ct("1", "1.3", 1.0));
+        assertEquals(1, out.size());
+        assertEquals("1", out.get(0).getSeriesInstanceUID());
+        assertEquals(3, out.get(0).getCt().size());
+        assertTrue(out.get(0).isComplete());
+        assertFalse(out.get(0).isTimedOut());
+
+        // late slice of an emitted series is dropped
+        assembler.add(DicomFixtures.ct("1", "1.4", 3.0));
+        assertEquals(1, assembler.pendingSize());
+        assembler.close();
+        assertEquals(2, out.size());
+        assertEquals("2", out.get(1).getSeriesInstanceUID());
+        assertTrue(out.get(1).isComplete());
+    }
+
+    @Test
+    void gap() {
+        List<AssembledSeries> out = new ArrayList<>();
+        var assembler = new SeriesAssembler(out::add, 0, TimeUnit.MILLISECONDS).expect("1", 3);
+        assembler.add(DicomFixtures.ct("1", "1.1", 0.0));
+        assembler.add(DicomFixtures.ct("1", "1.2", 1.0));
+        assembler.add(DicomFixtures.ct("1", "1.3", 3.0));
+        assertTrue(out.isEmpty());
+        assembler.flush();
+        assertEquals(1, out.size());
+        assertFalse(out.get(0).isComplete());
+        assertTrue(out.get(0).hasError());
+    }
+
+    @Test
+    void timeout() throws InterruptedException {
+        List<AssembledSeries> out = new CopyOnWriteArrayList<>();
+        var assembler = new SeriesAssembler(out::add, 50, TimeUnit.MILLISECONDS).expect("1", 3);
+        assembler.add(DicomFixtures.ct("1", "1.1", 0.0));
+        assembler.add(DicomFixtures.ct("1", "1.2", 1.0));
+        for (int i = 0; i < 100 && out.isEmpty(); i++) Thread.sleep(10);
+        assertEquals(1, out.size());
+        assertTrue(out.get(0).isTimedOut());
+        assertFalse(out.get(0).isComplete());
+        assertEquals(0, assembler.pendingSize());
+    }
+
+    @Test
+    void assemble() {
+        List<DicomObject> objects = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            DicomObject a = new DicomObject();
+            a.set(DicomFixtures.ct("1", "1." + i, i));
+            objects.add(a);
+            DicomObject b = new DicomObject();
+            b.set(DicomFixtures.ct("2", "2." + i, 2.5 * i));
+            objects.add(b);
+        }
+        Collections.shuffle(objects);
+        List<AssembledSeries> out = SeriesAssembler.assemble(Flowable.fromIterable(objects), Map.of("1", 10),
+                0, TimeUnit.MILLISECONDS).toList().blockingGet();
+        assertEquals(2, out.size());
+        assertTrue(out.stream().allMatch(AssembledSeries::isComplete));
+        assertTrue(out.stream().allMatch(series -> series.getCt().size() == 10));
+    }
+
+    @Test
+    void deliverOutsideLock() {
+        List<Boolean> locked = new ArrayList<>();
+        SeriesAssembler[] assembler = new SeriesAssembler[1];
+        assembler[0] = new SeriesAssembler(series -> {
+            locked.add(Thread.holdsLock(assembler[0]));
+            // the consumer can add slices of other series
+            assembler[0].add(DicomFixtures.ct("2", "2.1", 0.0));
+        }, 0, TimeUnit.MILLISECONDS).expect("1", 1);
+        assembler[0].add(DicomFixtures.ct("1", "1.1", 0.0));
+        assertEquals(List.of(false), locked);
+        assertEquals(1, assembler[0].pendingSize());
+    }
+
+    @Test
+    void emittedCapacity() {
+        List<AssembledSeries> out = new ArrayList<>();
+        var assembler = new SeriesAssembler(out::add, 0, TimeUnit.MILLISECONDS);
+        for (int i = 0; i <= SeriesAssembler.EMITTED_CAPACITY; i++) {
+            assembler.expect(String.valueOf(i), 1).add(DicomFixtures.ct(String.valueOf(i), i + ".1", 0.0));
+        }
+        assertEquals(SeriesAssembler.EMITTED_CAPACITY + 1, out.size());
+        // the most recent series are still remembered, the eldest one was evicted
+        assembler.add(DicomFixtures.ct("1", "1.2", 1.0));
+        assertEquals(SeriesAssembler.EMITTED_CAPACITY + 1, out.size());
+        // the expected number of slices was dropped with the emitted series
+        assembler.add(DicomFixtures.ct("0", "0.2", 1.0));
+        assertEquals(1, assembler.pendingSize());
+    }
+
+    @Test
+    void slowConsumer() throws InterruptedException {
+        List<String> out = new CopyOnWriteArrayList<>();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        var assembler = new SeriesAssembler(series -> {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            out.add(series.getSeriesInstanceUID());
+        }, 0, TimeUnit.MILLISECONDS).expect("1", 1).expect("2", 1);
+        Thread ingest = new Thread(() -> assembler.add(DicomFixtures.ct("1", "1.1", 0.0)));
+        ingest.start();
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        // the consumer blocks on series 1, adding a slice on another thread must not wait for it
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assembler.add(DicomFixtures.ct("2", "2.1", 0.0));
+            assembler.add(DicomFixtures.ct("3", "3.1", 0.0));
+        });
+        assertEquals(1, assembler.pendingSize());
+        assertTrue(out.isEmpty());
+        release.countDown();
+        ingest.join(5000);
+        assertEquals(List.of("1", "2"), out);
+    }
+}
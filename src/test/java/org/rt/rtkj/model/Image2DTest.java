@@ -17,6 +17,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class Image2DTest {
@@ -104,4 +105,32 @@ class Image2DTest {
         assertTrue(coord.isPresent());
         assertEquals(332, coord.get());
     }
-}
\ No newline at end of file
+
+    @Test
+    void get() {
+        assertEquals(-1002, image0.get(40, 148));
+        assertEquals(7, image0.get(455, 184));
+        assertEquals(-55, image0.get(91, 361));
+        assertEquals(332, image0.getUnchecked(412, 405));
+        assertEquals(332 * image0.getRescaleSlope() + image0.getRescaleIntercept(), image0.getScaled(412, 405));
+        assertThrows(IndexOutOfBoundsException.class, () -> image0.get(image0.getColumns(), 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> image0.get(0, -1));
+    }
+
+    @Test
+    void getRegion() {
+        double[] row = new double[image0.getColumns()];
+        image0.getRow(148, row, 0);
+        assertEquals(-1002, row[40]);
+        double[] region = new double[6];
+        image0.getRegion(454, 183, 3, 2, region, 0);
+        assertEquals(7, region[4]);
+        for (int r = 0; r < 2; r++) {
+            for (int c = 0; c < 3; c++) {
+                assertEquals(image0.get(454 + c, 183 + r), region[r * 3 + c]);
+            }
+        }
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> image0.getRegion(image0.getColumns() - 1, 0, 2, 1, region, 0));
+    }
+}
@@ -0,0 +1,79 @@
+package org.rt.rtkj.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Image3DTest {
+
+    private static Image2D slice(String uid, double[] iop, double[] ipp) {
+        Image2D image = new Image2D(2, 2);
+        image.setSOPInstanceUID(uid);
+        image.setPixelSpacing(new double[]{1.0, 1.0});
+        image.setImageOrientationPatient(iop);
+        image.setImagePositionPatient(ipp);
+        return image;
+    }
+
+    @Test
+    void addAxial() {
+        double[] axial = {1, 0, 0, 0, 1, 0};
+        Image3D image3D = new Image3D();
+        image3D.add(slice("3", axial, new double[]{0, 0, 4}));
+        assertEquals("3", image3D.get(0).getSOPInstanceUID());
+        image3D.add(slice("1", axial, new double[]{0, 0, -2}));
+        assertEquals("1", image3D.get(0).getSOPInstanceUID());
+        assertArrayEquals(new double[]{0, 0, -2}, image3D.getImagePositionPatient().orElseThrow());
+        image3D.add(slice("2", axial, new double[]{0, 0, 1}));
+        image3D.add(slice("4", axial, new double[]{0, 0, 7}));
+        assertEquals(4, image3D.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(String.valueOf(i + 1), image3D.get(i).getSOPInstanceUID());
+            assertEquals(-2 + 3 * i, image3D.getSlicePosition(i), 1e-12);
+        }
+    }
+
+    @Test
+    void addSagittal() {
+        // rows along -y, columns along -z: normal along +x. Ordering by z would keep the arrival order.
+        double[] sagittal = {0, -1, 0, 0, 0, -1};
+        Image3D image3D = new Image3D();
+        image3D.add(slice("2", sagittal, new double[]{10, 0, 0}));
+        image3D.add(slice("3", sagittal, new double[]{20, 0, 0}));
+        image3D.add(slice("1", sagittal, new double[]{0, 0, 0}));
+        assertEquals("1", image3D.get(0).getSOPInstanceUID());
+        assertEquals("2", image3D.get(1).getSOPInstanceUID());
+        assertEquals("3", image3D.get(2).getSOPInstanceUID());
+        assertEquals(20.0, image3D.getSlicePosition(2), 1e-12);
+    }
+
+    @Test
+    void sort() {
+        double[] axial = {1, 0, 0, 0, 1, 0};
+        Image3D image3D = new Image3D();
+        var a = slice("a", axial, new double[]{0, 0, 0});
+        image3D.add(a);
+        image3D.add(slice("b", axial, new double[]{0, 0, 1}));
+        a.setImagePositionPatient(new double[]{0, 0, 2});
+        image3D.sort();
+        assertEquals("b", image3D.get(0).getSOPInstanceUID());
+        assertEquals("a", image3D.get(1).getSOPInstanceUID());
+        assertEquals(2.0, image3D.getSlicePosition(1), 1e-12);
+    }
+
+    @Test
+    void getImages() {
+        double[] axial = {1, 0, 0, 0, 1, 0};
+        Image3D image3D = new Image3D();
+        for (int i = 0; i < 20; i++) image3D.add(slice("s" + i, axial, new double[]{0, 0, 20 - i}));
+        var images = image3D.getImages();
+        images.add(slice("x", axial, new double[]{0, 0, -1}));
+        images.clear();
+        assertEquals(20, image3D.size());
+        image3D.sort();
+        for (int i = 0; i < 20; i++) {
+            assertEquals("s" + (19 - i), image3D.get(i).getSOPInstanceUID());
+            assertEquals(i + 1.0, image3D.getSlicePosition(i), 1e-12);
+        }
+    }
+}
@@ -4,10 +4,7 @@ import org.apache.commons.math3.util.Precision;
 import org.dcm4che3.data.Attributes;
 import org.dcm4che3.io.DicomInputStream;
 import org.junit.jupiter.api.Test;
-import org.rt.rtkj.dicom.DicomException;
-import org.rt.rtkj.dicom.Modality;
-import org.rt.rtkj.dicom.PixelRepresentation;
-import org.rt.rtkj.dicom.Reader;
+import org.rt.rtkj.dicom.*;
 
 import java.io.BufferedInputStream;
 import java.io.FileInputStream;
@@ -16,8 +13,7 @@ import java.nio.ByteOrder;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 
 class ImageFactoryTest {
 
@@ -69,4 +65,41 @@ class ImageFactoryTest {
         assertEquals(PixelRepresentation.TWO_COMPLEMENT, image.getPixelRepresentation());
         assertEquals(16, image.getBitsAllocated());
     }
-}
\ No newline at end of file
+
+    @Test
+    void buildCTRescaled() {
+        CT ct = new CT();
+        ct.setSOPInstanceUID("1.2.3.1");
+        ct.setFrameOfReferenceUID("1.2.3.2");
+        ct.setModality(Modality.CT);
+        ct.setStudyInstanceUID("1.2.3.3");
+        ct.setSeriesInstanceUID("1.2.3.4");
+        ct.setPatientPosition(PatientPosition.HFS);
+        ct.setImagePositionPatient(new double[]{0, 0, 0});
+        ct.setImageOrientationPatient(new double[]{1, 0, 0, 0, 1, 0});
+        ct.setPixelSpacing(new double[]{1, 1});
+        ct.setPixelRepresentation(PixelRepresentation.TWO_COMPLEMENT);
+        ct.setBitsAllocated(16);
+        ct.setSamplesPerPixel(1);
+        ct.setPhotometricInterpretation(PhotometricInterpretation.MONOCHROME2);
+        ct.setRescaleSlope(1.0);
+        ct.setRescaleIntercept(-1024.0);
+        ct.setRows(2);
+        ct.setColumns(3);
+        ct.setPixelBuffer(new ShortPixelBuffer(new short[]{0, 1, 2, 1024, 1025, 1026}, PixelRepresentation.TWO_COMPLEMENT));
+
+        var stored = ImageFactory.build(ct);
+        assertTrue(stored.isPresent());
+        assertEquals(1025, stored.get().get(1, 1));
+        assertEquals(1, stored.get().getScaled(1, 1));
+        var rescaled = ImageFactory.build(ct, true);
+        assertTrue(rescaled.isPresent());
+        assertEquals(1, rescaled.get().get(1, 1));
+        assertEquals(-1022, rescaled.get().get(2, 0));
+        assertEquals(1, rescaled.get().getRescaleSlope());
+        assertEquals(0, rescaled.get().getRescaleIntercept());
+
+        ct.setRows(3);
+        assertTrue(ImageFactory.build(ct).isEmpty());
+    }
+}
@@ -7,13 +7,17 @@ import org.junit.jupiter.api.Test;
 import org.rt.rtkj.dicom.CT;
 import org.rt.rtkj.dicom.DicomException;
 import org.rt.rtkj.dicom.DicomFactory;
+import org.rt.rtkj.dicom.Modality;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Random;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -120,4 +124,68 @@ class PatientTest {
             }
         });
     }
-}
\ No newline at end of file
+
+    private static Image2D slice(String study, String series, String uid, double[] iop, double z) {
+        Image2D image = new Image2D(2, 2);
+        image.setSOPInstanceUID(uid);
+        image.setStudyInstanceUID(study);
+        image.setSeriesInstanceUID(series);
+        image.setModality(Modality.CT);
+        image.setFrameOfReferenceUID("1.2.3");
+        image.setPixelSpacing(new double[]{1.0, 1.0});
+        image.setImageOrientationPatient(iop);
+        image.setImagePositionPatient(new double[]{0, 0, z});
+        return image;
+    }
+
+    @Test
+    void addGrouping() {
+        double[] axial = {1, 0, 0, 0, 1, 0};
+        double[] axialNegativeZero = {1, -0.0, 0, 0, 1, -0.0};
+        double[] coronal = {1, 0, 0, 0, 0, -1};
+        Patient patient = new Patient();
+        patient.add(slice("1", "1.1", "1.1.1", axial, 0));
+        patient.add(slice("2", "2.1", "2.1.1", axial, 0));
+        patient.add(slice("1", "1.1", "1.1.2", axialNegativeZero, 1));
+        patient.add(slice("1", "1.2", "1.2.1", axial, 0));
+        patient.add(slice("1", "1.1", "1.1.3", coronal, 0));
+        patient.add(slice("1", "1.1", "1.1.4", axial, 2));
+
+        assertEquals(2, patient.sizeStudies());
+        var study = patient.getStudies().get(0);
+        assertEquals("1", study.getStudyInstanceUID());
+        assertEquals(2, study.getSeries().size());
+        var serie = study.getSeries().get(0);
+        assertEquals("1.1", serie.getSeriesInstanceUID());
+        assertEquals(2, serie.getImages().size());
+        assertEquals(3, serie.getImages().get(0).size());
+        assertEquals(1, serie.getImages().get(1).size());
+        assertEquals("2", patient.getStudies().get(1).getStudyInstanceUID());
+    }
+
+    @Test
+    void addConcurrent() {
+        double[] axial = {1, 0, 0, 0, 1, 0};
+        List<Image2D> slices = new ArrayList<>();
+        for (int study = 0; study < 4; study++) {
+            for (int series = 0; series < 5; series++) {
+                for (int i = 0; i < 50; i++) {
+                    String seriesUID = study + "." + series;
+                    slices.add(slice(String.valueOf(study), seriesUID, seriesUID + "." + i, axial, i));
+                }
+            }
+        }
+        Collections.shuffle(slices, new Random(3));
+        Patient patient = new Patient();
+        slices.parallelStream().forEach(patient::add);
+
+        assertEquals(4, patient.sizeStudies());
+        for (var study : patient.getStudies()) {
+            assertEquals(5, study.getSeries().size());
+            for (var serie : study.getSeries()) {
+                assertEquals(1, serie.getImages().size());
+                assertEquals(50, serie.getImages().get(0).size());
+            }
+        }
+    }
+}
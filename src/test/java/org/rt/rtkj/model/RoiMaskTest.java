@@ -0,0 +1,118 @@
+package org.rt.rtkj.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoiMaskTest {
+    private static final int COLUMNS = 37;
+    private static final int ROWS = 5;
+    private static final int SLICES = 4;
+
+    private static boolean[] random(Random random, double p) {
+        boolean[] voxels = new boolean[COLUMNS * ROWS * SLICES];
+        // leave slice 1 empty
+        for (int i = 0; i < voxels.length; i++) voxels[i] = (i / (COLUMNS * ROWS) != 1) && random.nextDouble() < p;
+        return voxels;
+    }
+
+    private static RoiMask mask(boolean[] voxels, MaskStorage storage) {
+        RoiMask.Builder builder = RoiMask.builder(COLUMNS, ROWS, SLICES, storage);
+        for (int s = 0; s < SLICES; s++) {
+            for (int r = 0; r < ROWS; r++) {
+                for (int c = 0; c < COLUMNS; c++) {
+                    // single voxel runs, adjacent runs are merged by the builder
+                    if (voxels[(s * ROWS + r) * COLUMNS + c]) builder.add(s, r, c, c);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private static void assertMask(boolean[] expected, RoiMask mask) {
+        long count = 0;
+        for (int s = 0; s < SLICES; s++) {
+            for (int r = 0; r < ROWS; r++) {
+                for (int c = 0; c < COLUMNS; c++) {
+                    boolean e = expected[(s * ROWS + r) * COLUMNS + c];
+                    assertEquals(e, mask.get(c, r, s), String.format("voxel [%d, %d, %d]", c, r, s));
+                    if (e) count++;
+                }
+            }
+        }
+        assertEquals(count, mask.count());
+        boolean[] visited = new boolean[expected.length];
+        List<int[]> runs = new ArrayList<>();
+        mask.forEachRun((s, r, first, last) -> {
+            runs.add(new int[]{s, r, first, last});
+            for (int c = first; c <= last; c++) visited[(s * ROWS + r) * COLUMNS + c] = true;
+        });
+        assertArrayEquals(expected, visited);
+        for (int i = 1; i < runs.size(); i++) {
+            int[] a = runs.get(i - 1);
+            int[] b = runs.get(i);
+            boolean ordered = a[0] < b[0] || (a[0] == b[0] && (a[1] < b[1] || (a[1] == b[1] && a[3] + 1 < b[2])));
+            assertTrue(ordered, "runs are ordered and maximal");
+        }
+    }
+
+    @Test
+    void build() {
+        var voxels = random(new Random(1), 0.4);
+        for (MaskStorage storage : MaskStorage.values()) {
+            var mask = mask(voxels, storage);
+            assertEquals(storage, mask.getStorage());
+            assertMask(voxels, mask);
+            assertMask(voxels, mask.to(MaskStorage.BIT_PACKED));
+            assertMask(voxels, mask.to(MaskStorage.RUN_LENGTH));
+        }
+    }
+
+    @Test
+    void setOperations() {
+        var random = new Random(2);
+        var a = random(random, 0.5);
+        var b = random(random, 0.3);
+        boolean[] union = new boolean[a.length];
+        boolean[] intersection = new boolean[a.length];
+        boolean[] subtract = new boolean[a.length];
+        for (int i = 0; i < a.length; i++) {
+            union[i] = a[i] || b[i];
+            intersection[i] = a[i] && b[i];
+            subtract[i] = a[i] && !b[i];
+        }
+        for (MaskStorage sa : MaskStorage.values()) {
+            for (MaskStorage sb : MaskStorage.values()) {
+                var ma = mask(a, sa);
+                var mb = mask(b, sb);
+                assertEquals(sa, ma.union(mb).getStorage());
+                assertMask(union, ma.union(mb));
+                assertMask(intersection, ma.intersection(mb));
+                assertMask(subtract, ma.subtract(mb));
+            }
+        }
+    }
+
+    @Test
+    void runs() {
+        var bits = new BitMask(100, 2, 1);
+        bits.set(0, 0, 60, 99);
+        bits.set(0, 1, 0, 70);
+        List<int[]> runs = new ArrayList<>();
+        bits.forEachRun((s, r, first, last) -> runs.add(new int[]{s, r, first, last}));
+        assertEquals(2, runs.size());
+        assertArrayEquals(new int[]{0, 0, 60, 99}, runs.get(0));
+        assertArrayEquals(new int[]{0, 1, 0, 70}, runs.get(1));
+        assertEquals(111, bits.count());
+
+        var rle = (RleMask) bits.to(MaskStorage.RUN_LENGTH);
+        assertEquals(2, rle.runCount());
+        assertThrows(IllegalArgumentException.class, () -> RoiMask.builder(10, 2, 2, MaskStorage.RUN_LENGTH)
+                .add(1, 0, 0, 1).add(0, 1, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> bits.union(new BitMask(100, 2, 2)));
+    }
+}
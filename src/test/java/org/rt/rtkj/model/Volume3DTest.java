@@ -0,0 +1,115 @@
+package org.rt.rtkj.model;
+
+import org.apache.commons.math3.util.Precision;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Volume3DTest {
+
+    private static Image2D slice(String uid, double z, int cols, int rows) {
+        Image2D image = new Image2D(cols, rows);
+        image.setSOPInstanceUID(uid);
+        image.setFrameOfReferenceUID("1.2.3");
+        image.setPixelSpacing(new double[]{2.0, 1.0});
+        image.setImageOrientationPatient(new double[]{1, 0, 0, 0, 1, 0});
+        image.setImagePositionPatient(new double[]{-10, -20, z});
+        image.setRescaleSlope(1.0);
+        image.setRescaleIntercept(-1000.0);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                image.setValue(c, r, z * 100 + r * cols + c);
+            }
+        }
+        return image;
+    }
+
+    @Test
+    void index() {
+        Volume3D volume = new Volume3D(4, 3, 2);
+        assertEquals(24, volume.size());
+        assertEquals(0, volume.index(0, 0, 0));
+        assertEquals(1, volume.index(1, 0, 0));
+        assertEquals(4, volume.index(0, 1, 0));
+        assertEquals(12, volume.index(0, 0, 1));
+        volume.set(3, 2, 1, 5.0f);
+        assertEquals(5.0f, volume.get(23));
+        assertTrue(volume.contains(3, 2, 1));
+        assertFalse(volume.contains(4, 2, 1));
+    }
+
+    @Test
+    void build() {
+        Image3D image3D = new Image3D();
+        image3D.add(slice("3", 5.0, 4, 3));
+        image3D.add(slice("1", 1.0, 4, 3));
+        image3D.add(slice("2", 3.0, 4, 3));
+        var optVolume = ImageFactory.build(image3D);
+        assertTrue(optVolume.isPresent());
+        var volume = optVolume.get();
+        assertEquals(4, volume.getColumns());
+        assertEquals(3, volume.getRows());
+        assertEquals(3, volume.getSlices());
+        assertArrayEquals(new double[]{-10, -20, 1}, volume.getOrigin());
+        assertArrayEquals(new double[]{1, 2, 2}, volume.getSpacing());
+        assertArrayEquals(new double[]{0, 0, 1}, volume.getSliceNormal());
+        assertEquals("1.2.3", volume.getFrameOfReferenceUID());
+        for (int k = 0; k < 3; k++) {
+            double z = 1.0 + 2 * k;
+            for (int r = 0; r < 3; r++) {
+                for (int c = 0; c < 4; c++) {
+                    assertEquals((float) (z * 100 + r * 4 + c - 1000.0), volume.get(c, r, k));
+                }
+            }
+        }
+        double[] p = volume.i2c(2, 1, 2);
+        assertArrayEquals(new double[]{-8, -18, 5}, p);
+        double[] i = volume.c2i(p[0], p[1], p[2]);
+        assertTrue(Precision.equals(2, i[0], 1e-9));
+        assertTrue(Precision.equals(1, i[1], 1e-9));
+        assertTrue(Precision.equals(2, i[2], 1e-9));
+    }
+
+    @Test
+    void buildNonEquidistant() {
+        Image3D image3D = new Image3D();
+        image3D.add(slice("1", 1.0, 2, 2));
+        image3D.add(slice("2", 3.0, 2, 2));
+        image3D.add(slice("3", 6.0, 2, 2));
+        assertTrue(ImageFactory.build(image3D).isEmpty());
+    }
+
+    @Test
+    void directVoxelBuffer() {
+        var buffer = new DirectVoxelBuffer(10, 2);
+        assertEquals(10, buffer.size());
+        assertTrue(buffer.isDirect());
+        float[] src = {1, 2, 3, 4, 5, 6, 7};
+        buffer.put(2, src, 0, src.length);
+        assertEquals(0.0f, buffer.get(1));
+        assertEquals(1.0f, buffer.get(2));
+        assertEquals(7.0f, buffer.get(8));
+        float[] dst = new float[5];
+        buffer.get(3, dst, 0, 5);
+        assertArrayEquals(new float[]{2, 3, 4, 5, 6}, dst);
+        buffer.fill(-1.0f);
+        assertEquals(-1.0f, buffer.get(9));
+        buffer.close();
+        assertTrue(buffer.isReleased());
+        assertThrows(IllegalStateException.class, () -> buffer.get(0));
+    }
+
+    @Test
+    void buildOffHeap() {
+        Image3D image3D = new Image3D();
+        image3D.add(slice("1", 1.0, 4, 3));
+        image3D.add(slice("2", 3.0, 4, 3));
+        var optVolume = ImageFactory.build(image3D, VolumeStorage.OFF_HEAP);
+        assertTrue(optVolume.isPresent());
+        try (var volume = optVolume.get()) {
+            assertTrue(volume.isDirect());
+            assertEquals(24, volume.size());
+            assertEquals((float) (300 + 2 * 4 + 3 - 1000.0), volume.get(3, 2, 1));
+        }
+    }
+}